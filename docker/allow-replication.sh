@@ -0,0 +1,3 @@
+#!/bin/sh
+# lets the replica service stream the primary's WAL
+echo "host replication all all trust" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,49 @@
+package example.micronaut.benchmarks;
+
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.BookUpdateCommand;
+import example.micronaut.domain.Book;
+import example.micronaut.services.BookTransformer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookTransformerBenchmark {
+
+    @Param({"0", "3", "20"})
+    int genres;
+
+    private final BookTransformer bookTransformer = new BookTransformer();
+    private BookCreateCommand createCommand;
+    private BookUpdateCommand updateCommand;
+
+    @Setup
+    public void setup() {
+        Set<UUID> genreIds = IntStream.range(0, genres).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toSet());
+        createCommand = new BookCreateCommand("The Left Hand of Darkness", genreIds);
+        updateCommand = new BookUpdateCommand();
+        updateCommand.setId(UUID.randomUUID());
+        updateCommand.setName("The Dispossessed");
+        updateCommand.setGenres(genreIds);
+    }
+
+    @Benchmark
+    public Book fromCreateCommand() {
+        return bookTransformer.fromCreateCommand(createCommand);
+    }
+
+    @Benchmark
+    public Book fromUpdateCommandJustId() {
+        return bookTransformer.fromUpdateCommandJustId(updateCommand);
+    }
+}
@@ -0,0 +1,101 @@
+package example.micronaut.benchmarks;
+
+import example.micronaut.domain.Book;
+import example.micronaut.services.BookRepository;
+import io.micronaut.context.ApplicationContext;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of concurrent book lookups for pg-pool settings, against the database configured in
+ * application-bench.yml. Each row changes one knob from the application.yml defaults, or a small pool without
+ * pipelining for the wait queue to matter, so comparing it with the defaults row shows the effect of that knob.
+ * Every row starts its own context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PoolTuningBenchmark {
+
+    private static final UUID START = new UUID(0L, 0L);
+    private static final int CONCURRENCY = 64;
+
+    // comma separated pg-pool settings, "defaults" for none
+    @Param({
+            "defaults",
+            "max-size=5",
+            "max-size=20",
+            "pipelining-limit=1",
+            "prepared-statement-cache-max-size=0",
+            "prepared-statement-cache-sql-limit=16",
+            "max-size=5,pipelining-limit=1",
+            "max-size=5,pipelining-limit=1,max-wait-queue-size=16"})
+    String settings;
+
+    private ApplicationContext context;
+    private BookRepository bookRepository;
+    private List<UUID> bookIds;
+
+    /**
+     * Lookups turned away because the pool's wait queue was full, reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rejections {
+
+        public long rejected;
+    }
+
+    @Setup
+    public void setup() {
+        Map<String, Object> properties = new HashMap<>();
+        if (!settings.equals("defaults")) {
+            for (String setting : settings.split(",")) {
+                String[] pair = setting.split("=");
+                properties.put("pg-pool." + pair[0], pair[1]);
+            }
+        }
+        context = ApplicationContext.run(properties, "bench");
+        bookRepository = context.getBean(BookRepository.class);
+        bookIds = bookRepository.findIdsAfter(START, CONCURRENCY).collectList().block();
+        if (bookIds == null || bookIds.isEmpty()) {
+            throw new IllegalStateException("The benchmark database has no books");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * One operation is a burst of concurrent lookups, enough to queue on a small pool. With a bounded wait queue the
+     * lookups it rejects complete at once and are counted as rejected.
+     */
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public List<Book> concurrentFindById(Rejections rejections) {
+        AtomicInteger rejected = new AtomicInteger();
+        List<Book> books = Flux.range(0, CONCURRENCY)
+                .flatMap(i -> bookRepository.findById(bookIds.get(i % bookIds.size()))
+                        .onErrorResume(e -> {
+                            rejected.incrementAndGet();
+                            return Mono.empty();
+                        }), CONCURRENCY)
+                .collectList()
+                .block();
+        rejections.rejected += rejected.get();
+        return books;
+    }
+}
@@ -0,0 +1,80 @@
+package example.micronaut.benchmarks;
+
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import example.micronaut.services.BookRepository;
+import example.micronaut.services.GenreRepository;
+import io.micronaut.context.ApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips through the reactive repositories against the database configured in application-bench.yml,
+ * by default the docker compose Postgres on port 5434. Run ./startDatabase.sh first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final UUID START = new UUID(0L, 0L);
+
+    @Param({"100"})
+    int pageSize;
+
+    private ApplicationContext context;
+    private BookRepository bookRepository;
+    private GenreRepository genreRepository;
+    private UUID bookId;
+    private UUID genreId;
+    private Set<UUID> genreIds;
+
+    @Setup
+    public void setup() {
+        context = ApplicationContext.run("bench");
+        bookRepository = context.getBean(BookRepository.class);
+        genreRepository = context.getBean(GenreRepository.class);
+
+        List<UUID> bookIds = bookRepository.findIdsAfter(START, 1).collectList().block();
+        if (bookIds == null || bookIds.isEmpty()) {
+            throw new IllegalStateException("The benchmark database has no books");
+        }
+        bookId = bookIds.get(0);
+        List<Genre> genres = genreRepository.findAll().collectList().block();
+        genreId = genres.get(0).getId();
+        genreIds = Set.copyOf(genres.stream().map(Genre::getId).limit(10).toList());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book findBookById() {
+        return bookRepository.findById(bookId).block();
+    }
+
+    @Benchmark
+    public List<Book> listBookPage() {
+        List<UUID> ids = bookRepository.findIdsAfter(START, pageSize).collectList().block();
+        return bookRepository.findByIdIn(ids).collectList().block();
+    }
+
+    @Benchmark
+    public Genre findGenreById() {
+        return genreRepository.findById(genreId).block();
+    }
+
+    @Benchmark
+    public List<Genre> findGenresByIdIn() {
+        return genreRepository.findAllByIdIn(genreIds).collectList().block();
+    }
+}
@@ -0,0 +1,100 @@
+package example.micronaut.benchmarks;
+
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Encode and decode cost of the payloads the controllers exchange, at the genre fan-outs we see in the catalogue.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerdeBenchmark {
+
+    @Param({"1", "5", "25"})
+    int genres;
+
+    private ApplicationContext context;
+    private JsonMapper jsonMapper;
+    private Book book;
+    private Genre genre;
+    private BookCreateCommand createCommand;
+    private byte[] bookJson;
+    private byte[] genreJson;
+    private byte[] createCommandJson;
+
+    @Setup
+    public void setup() throws IOException {
+        // serde only needs the bean introspections, nothing here touches the database
+        context = ApplicationContext.run(Map.of(
+                "flyway.datasources.default.enabled", false,
+                "genre.cache.warm-on-startup", false,
+                "books.filter-index.build-on-startup", false));
+        jsonMapper = context.getBean(JsonMapper.class);
+
+        Set<Genre> bookGenres = IntStream.range(0, genres)
+                .mapToObj(i -> new Genre(UUID.randomUUID(), "genre-" + i))
+                .collect(Collectors.toSet());
+        book = new Book();
+        book.setId(UUID.randomUUID());
+        book.setName("The Left Hand of Darkness");
+        book.setGenres(bookGenres);
+        genre = bookGenres.iterator().next();
+        createCommand = new BookCreateCommand(book.getName(), bookGenres.stream().map(Genre::getId).collect(Collectors.toSet()));
+
+        bookJson = jsonMapper.writeValueAsBytes(book);
+        genreJson = jsonMapper.writeValueAsBytes(genre);
+        createCommandJson = jsonMapper.writeValueAsBytes(createCommand);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] encodeBook() throws IOException {
+        return jsonMapper.writeValueAsBytes(book);
+    }
+
+    @Benchmark
+    public Book decodeBook() throws IOException {
+        return jsonMapper.readValue(bookJson, Argument.of(Book.class));
+    }
+
+    @Benchmark
+    public byte[] encodeGenre() throws IOException {
+        return jsonMapper.writeValueAsBytes(genre);
+    }
+
+    @Benchmark
+    public Genre decodeGenre() throws IOException {
+        return jsonMapper.readValue(genreJson, Argument.of(Genre.class));
+    }
+
+    @Benchmark
+    public byte[] encodeBookCreateCommand() throws IOException {
+        return jsonMapper.writeValueAsBytes(createCommand);
+    }
+
+    @Benchmark
+    public BookCreateCommand decodeBookCreateCommand() throws IOException {
+        return jsonMapper.readValue(createCommandJson, Argument.of(BookCreateCommand.class));
+    }
+}
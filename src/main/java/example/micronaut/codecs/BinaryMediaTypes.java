@@ -0,0 +1,21 @@
+package example.micronaut.codecs;
+
+import io.micronaut.http.MediaType;
+
+/**
+ * The compact encodings offered next to JSON, negotiated through Accept and Content-Type.
+ */
+public final class BinaryMediaTypes {
+
+    public static final String APPLICATION_SMILE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE_TYPE = new MediaType(APPLICATION_SMILE);
+
+    public static final String APPLICATION_CBOR = "application/cbor";
+    public static final MediaType APPLICATION_CBOR_TYPE = new MediaType(APPLICATION_CBOR);
+
+    private BinaryMediaTypes() {}
+
+    public static boolean isBinary(MediaType mediaType) {
+        return mediaType.equals(APPLICATION_SMILE_TYPE) || mediaType.equals(APPLICATION_CBOR_TYPE);
+    }
+}
@@ -0,0 +1,13 @@
+package example.micronaut.codecs;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.micronaut.serde.SerdeRegistry;
+import jakarta.inject.Singleton;
+
+@Singleton
+public class CborCodec extends SerdeBinaryCodec {
+
+    public CborCodec(SerdeRegistry serdeRegistry) {
+        super(serdeRegistry, new CBORFactory(), BinaryMediaTypes.APPLICATION_CBOR_TYPE);
+    }
+}
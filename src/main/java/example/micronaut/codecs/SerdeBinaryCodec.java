@@ -0,0 +1,109 @@
+package example.micronaut.codecs;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import io.micronaut.core.io.buffer.ByteBuffer;
+import io.micronaut.core.io.buffer.ByteBufferFactory;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.codec.CodecException;
+import io.micronaut.http.codec.MediaTypeCodec;
+import io.micronaut.serde.Deserializer;
+import io.micronaut.serde.SerdeRegistry;
+import io.micronaut.serde.Serializer;
+import io.micronaut.serde.jackson.JacksonDecoder;
+import io.micronaut.serde.jackson.JacksonEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Encodes the @Serdeable types with a binary Jackson format. The Micronaut Serde serializers are reused, only the
+ * token stream changes, so every type that can be written as JSON can be written in the binary format too.
+ * Encoding writes straight into the buffer handed out by the server rather than through a byte array. Pages are
+ * encoded whole rather than element by element, see the README.
+ */
+abstract class SerdeBinaryCodec implements MediaTypeCodec {
+
+    private final SerdeRegistry serdeRegistry;
+    private final JsonFactory factory;
+    private final MediaType mediaType;
+
+    SerdeBinaryCodec(SerdeRegistry serdeRegistry, JsonFactory factory, MediaType mediaType) {
+        this.serdeRegistry = serdeRegistry;
+        this.factory = factory;
+        this.mediaType = mediaType;
+    }
+
+    @Override
+    public Collection<MediaType> getMediaTypes() {
+        return List.of(mediaType);
+    }
+
+    @Override
+    public <T> T decode(Argument<T> type, InputStream inputStream) throws CodecException {
+        try (JsonParser parser = factory.createParser(inputStream)) {
+            Deserializer.DecoderContext context = serdeRegistry.newDecoderContext(null);
+            Deserializer<? extends T> deserializer = context.findDeserializer(type).createSpecific(context, type);
+            return deserializer.deserialize(JacksonDecoder.create(parser), context, type);
+        } catch (IOException e) {
+            throw new CodecException("Error decoding " + mediaType + " to " + type + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> void encode(T object, OutputStream outputStream) throws CodecException {
+        encode(argumentOf(object), object, outputStream);
+    }
+
+    @Override
+    public <T> void encode(Argument<T> type, T object, OutputStream outputStream) throws CodecException {
+        try (JsonGenerator generator = factory.createGenerator(outputStream)) {
+            Serializer.EncoderContext context = serdeRegistry.newEncoderContext(null);
+            Serializer<? super T> serializer = context.findSerializer(type).createSpecific(context, type);
+            serializer.serialize(JacksonEncoder.create(generator), context, type, object);
+        } catch (IOException e) {
+            throw new CodecException("Error encoding " + type + " as " + mediaType + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public <T> byte[] encode(T object) throws CodecException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        encode(object, bytes);
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public <T> byte[] encode(Argument<T> type, T object) throws CodecException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        encode(type, object, bytes);
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public <T, B> ByteBuffer<B> encode(T object, ByteBufferFactory<?, B> allocator) throws CodecException {
+        return encode(argumentOf(object), object, allocator);
+    }
+
+    @Override
+    public <T, B> ByteBuffer<B> encode(Argument<T> type, T object, ByteBufferFactory<?, B> allocator) throws CodecException {
+        ByteBuffer<B> buffer = allocator.buffer();
+        try (OutputStream outputStream = buffer.toOutputStream()) {
+            encode(type, object, outputStream);
+        } catch (IOException e) {
+            throw new CodecException("Error encoding " + type + " as " + mediaType + ": " + e.getMessage(), e);
+        }
+        return buffer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Argument<T> argumentOf(T object) {
+        return (Argument<T>) Argument.of(object.getClass());
+    }
+}
@@ -0,0 +1,20 @@
+package example.micronaut.codecs;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import io.micronaut.serde.SerdeRegistry;
+import jakarta.inject.Singleton;
+
+/**
+ * Smile, with shared string values on so the genre names repeated across a page of books are written once and
+ * referenced after that.
+ */
+@Singleton
+public class SmileCodec extends SerdeBinaryCodec {
+
+    public SmileCodec(SerdeRegistry serdeRegistry) {
+        super(serdeRegistry,
+                SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build(),
+                BinaryMediaTypes.APPLICATION_SMILE_TYPE);
+    }
+}
@@ -0,0 +1,45 @@
+package example.micronaut.commands;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.serde.annotation.Serdeable;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Size;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Selects the books to delete, either by id or every book carrying a genre.
+ */
+@Serdeable
+public class BookDeleteCommand {
+
+    @Nullable
+    @Size(max = 10000)
+    private final Set<UUID> ids;
+
+    @Nullable
+    private final UUID genreId;
+
+    public BookDeleteCommand(@Nullable Set<UUID> ids, @Nullable UUID genreId) {
+        this.ids = ids;
+        this.genreId = genreId;
+    }
+
+    @Nullable
+    public Set<UUID> getIds() {
+        return ids;
+    }
+
+    @Nullable
+    public UUID getGenreId() {
+        return genreId;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "exactly one of ids or genreId is required")
+    public boolean isSelective() {
+        return (ids == null) != (genreId == null);
+    }
+}
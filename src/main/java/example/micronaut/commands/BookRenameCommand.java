@@ -0,0 +1,30 @@
+package example.micronaut.commands;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * A new name for a book, applied only if the book is still at the version the client last read.
+ */
+@Serdeable
+public class BookRenameCommand {
+
+    @NotBlank
+    private final String name;
+
+    private final long version;
+
+    public BookRenameCommand(String name, long version) {
+        this.name = name;
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
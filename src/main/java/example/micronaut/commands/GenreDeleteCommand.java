@@ -0,0 +1,24 @@
+package example.micronaut.commands;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.Set;
+import java.util.UUID;
+
+@Serdeable
+public class GenreDeleteCommand {
+
+    @NotEmpty
+    @Size(max = 10000)
+    private final Set<UUID> ids;
+
+    public GenreDeleteCommand(Set<UUID> ids) {
+        this.ids = ids;
+    }
+
+    public Set<UUID> getIds() {
+        return ids;
+    }
+}
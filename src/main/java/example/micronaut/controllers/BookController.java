@@ -1,30 +1,99 @@
 package example.micronaut.controllers;
 
+import example.micronaut.codecs.BinaryMediaTypes;
 import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.BookDeleteCommand;
+import example.micronaut.commands.BookRenameCommand;
 import example.micronaut.commands.BookUpdateCommand;
 import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import example.micronaut.responses.BookBatchResult;
+import example.micronaut.responses.BulkDeleteResult;
+import example.micronaut.responses.CacheStats;
+import example.micronaut.responses.GenreIndexStats;
+import example.micronaut.responses.ImportResult;
+import example.micronaut.services.BookCache;
 import example.micronaut.services.BookService;
+import example.micronaut.services.CachedBook;
+import example.micronaut.services.CatalogueFormat;
+import example.micronaut.services.CatalogueService;
+import example.micronaut.services.GenreIndex;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.*;
+import io.micronaut.http.exceptions.HttpStatusException;
+import io.micronaut.json.JsonMapper;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Controller("/books")
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_SMILE, BinaryMediaTypes.APPLICATION_CBOR})
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_SMILE, BinaryMediaTypes.APPLICATION_CBOR})
 public class BookController {
 
     private final BookService bookService;
+    private final CatalogueService catalogueService;
+    private final JsonMapper jsonMapper;
 
-    public BookController(BookService bookService) {
+    public BookController(BookService bookService, CatalogueService catalogueService, JsonMapper jsonMapper) {
         this.bookService = bookService;
+        this.catalogueService = catalogueService;
+        this.jsonMapper = jsonMapper;
     }
 
+    @Get
+    public Mono<List<Book>> findAll(@QueryValue @NotEmpty @Size(max = 1000) List<UUID> ids) {
+        return bookService.findAllByIdInOrder(ids);
+    }
+
+    /**
+     * With the book cache enabled JSON is served from it, except to clients reading their own writes from the
+     * primary, and only books read from the primary are added to it. Otherwise a conditional request is answered
+     * from the version columns alone, the book is only loaded when it changed.
+     */
     @Get("/{id}")
-    public Mono<Book> show(UUID id) {
-        return bookService
-                .findById(id);
+    public Mono<HttpResponse<?>> show(HttpRequest<?> request, UUID id, @Nullable @Header(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        BookCache cache = bookService.getCache();
+        if (cache.isEnabled() && !bookService.bypassesCache() && request.accept().stream().noneMatch(BinaryMediaTypes::isBinary)) {
+            CachedBook cached = cache.get(id);
+            if (cached != null) {
+                return Mono.just(respond(cached, ifNoneMatch));
+            }
+            return bookService.findCachedById(id, this::encode)
+                    .map(encoded -> respond(encoded, ifNoneMatch));
+        }
+        if (ifNoneMatch == null) {
+            return bookService.findById(id)
+                    .map(book -> HttpResponse.ok(book).header(HttpHeaders.ETAG, ETags.book(book)));
+        }
+        return bookService.findVersionTagById(id)
+                .map(ETags::of)
+                .flatMap(etag -> ETags.matches(ifNoneMatch, etag)
+                        ? Mono.just(HttpResponse.notModified().header(HttpHeaders.ETAG, etag))
+                        : bookService.findById(id).map(book -> HttpResponse.ok(book).header(HttpHeaders.ETAG, ETags.book(book))));
     }
 
     @Put
@@ -32,14 +101,96 @@ public class BookController {
         return bookService.update(command);
     }
 
+    /**
+     * Renames a book if it is still at the given version, 409 when it has moved on since and 404 when it is gone.
+     */
+    @Put("/{id}/name")
+    public Mono<HttpResponse<?>> rename(UUID id, @Body @Valid BookRenameCommand command) {
+        return bookService.rename(id, command.getName(), command.getVersion())
+                .<HttpResponse<?>>map(outcome -> switch (outcome) {
+                    case RENAMED -> HttpResponse.noContent();
+                    case NOT_FOUND -> HttpResponse.notFound();
+                    case VERSION_MISMATCH -> throw new HttpStatusException(HttpStatus.CONFLICT,
+                            "Book " + id + " is no longer at version " + command.getVersion());
+                    case NAME_TAKEN -> throw new HttpStatusException(HttpStatus.CONFLICT,
+                            "Another book is already named " + command.getName());
+                });
+    }
+
     @Patch
     public Mono<Book> updateGenres(@Body BookUpdateCommand command) {
         return bookService.updateGenres(command);
     }
 
     @Get("/list")
-    public Flux<Book> list() {
-        return bookService.list();
+    public Mono<HttpResponse<List<Book>>> list(@Nullable @QueryValue String after,
+                                               @QueryValue(defaultValue = "100") @Positive @Max(1000) int limit,
+                                               @Nullable @Header(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        return bookService.list(after == null ? null : BookCursor.decode(after), limit)
+                .map(page -> BookCursor.withNextLink(ETags.conditional(page.getBooks(), ETags.books(page.getBooks()), ifNoneMatch),
+                        "/books/list", page, limit));
+    }
+
+    @Get("/search")
+    public Mono<List<Book>> search(@QueryValue @NotBlank String q,
+                                   @QueryValue(defaultValue = "20") @Positive @Max(1000) int limit) {
+        return bookService.search(q, limit);
+    }
+
+    /**
+     * Books by genre membership, answered from the node local genre index. 503 while the index is still being built.
+     */
+    @Get("/filter")
+    public Mono<HttpResponse<List<Book>>> filter(@Nullable @QueryValue @Size(max = 100) Set<UUID> all,
+                                                 @Nullable @QueryValue @Size(max = 100) Set<UUID> any,
+                                                 @Nullable @QueryValue @Size(max = 100) Set<UUID> none,
+                                                 @Nullable @QueryValue String after,
+                                                 @QueryValue(defaultValue = "100") @Positive @Max(1000) int limit) {
+        Set<UUID> allOf = all == null ? Set.of() : all;
+        Set<UUID> anyOf = any == null ? Set.of() : any;
+        Set<UUID> noneOf = none == null ? Set.of() : none;
+        String query = Stream.of(query("all", allOf), query("any", anyOf), query("none", noneOf))
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.joining("&"));
+        String path = query.isEmpty() ? "/books/filter" : "/books/filter?" + query;
+        return bookService.filter(allOf, anyOf, noneOf, after == null ? null : BookCursor.decode(after), limit)
+                .onErrorMap(TimeoutException.class, e -> new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The genre index is not built yet"))
+                .map(page -> BookCursor.withNextLink(HttpResponse.ok(page.getBooks()), path, page, limit));
+    }
+
+    @Get("/filter/stats")
+    public GenreIndexStats filterStats() {
+        GenreIndex index = bookService.getGenreIndex();
+        return new GenreIndexStats(index.books(), index.genres(), index.bitmapBytes(), index.getBuildMillis());
+    }
+
+    @Get(value = "/stream", produces = MediaType.APPLICATION_JSON_STREAM)
+    public Flux<Book> stream(@QueryValue(defaultValue = "500") @Positive @Max(5000) int chunkSize) {
+        return bookService.stream(chunkSize);
+    }
+
+    /**
+     * Every book with its genres, streamed straight out of a COPY as csv rows or one json document per line.
+     */
+    @Get(value = "/export", produces = {CatalogueFormat.TEXT_CSV, CatalogueFormat.APPLICATION_NDJSON})
+    public HttpResponse<Publisher<byte[]>> export(@QueryValue(defaultValue = "csv") String format) {
+        CatalogueFormat catalogueFormat = catalogue(format);
+        if (!catalogueService.hasFreeConnection()) {
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "All catalogue connections are in use");
+        }
+        return HttpResponse.<Publisher<byte[]>>ok(catalogueService.export(catalogueFormat))
+                .contentType(catalogueFormat.getMediaType());
+    }
+
+    /**
+     * Loads a body in the export format of the content type, all of it or nothing.
+     */
+    @Post(value = "/import", consumes = {CatalogueFormat.TEXT_CSV, CatalogueFormat.APPLICATION_NDJSON})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Mono<ImportResult> importCatalogue(@Header(HttpHeaders.CONTENT_TYPE) String contentType, @Body Publisher<byte[]> body) {
+        return catalogueService.importCatalogue(catalogue(contentType), body)
+                .onErrorMap(IllegalArgumentException.class, e -> new HttpStatusException(HttpStatus.BAD_REQUEST, e.getMessage()))
+                .onErrorMap(RejectedExecutionException.class, e -> new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
     }
 
     @Post
@@ -49,12 +200,58 @@ public class BookController {
                         .headers(headers -> headers.location(location(book.getId()))));
     }
 
+    @Post("/batch")
+    public Flux<BookBatchResult> saveAll(@Body Flux<BookCreateCommand> commands) {
+        return bookService.saveAll(commands);
+    }
+
+    @Post("/delete")
+    public Mono<BulkDeleteResult> deleteAll(@Body @Valid BookDeleteCommand command) {
+        return bookService.deleteAll(command);
+    }
+
     @Delete("/{id}")
     public Mono<HttpResponse<?>> delete(UUID id) {
         return bookService.deleteById(id)
                 .map(deleteId -> HttpResponse.noContent());
     }
 
+    @Get("/cache")
+    public CacheStats cache() {
+        BookCache cache = bookService.getCache();
+        return new CacheStats(cache.size(), cache.getMaxSize(), cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+
+    private static CatalogueFormat catalogue(String format) {
+        return CatalogueFormat.of(format)
+                .orElseThrow(() -> new HttpStatusException(HttpStatus.BAD_REQUEST, "Unsupported format: " + format));
+    }
+
+    private CachedBook encode(Book book) {
+        try {
+            byte[] json = jsonMapper.writeValueAsBytes(Argument.of(Book.class), book);
+            Set<UUID> genreIds = book.getGenres() == null
+                    ? Set.of()
+                    : book.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+            return new CachedBook(json, ETags.book(book), genreIds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String query(String name, Set<UUID> genreIds) {
+        return genreIds.stream().map(id -> name + "=" + id).collect(Collectors.joining("&"));
+    }
+
+    private static HttpResponse<?> respond(CachedBook book, @Nullable String ifNoneMatch) {
+        if (ETags.matches(ifNoneMatch, book.getEtag())) {
+            return HttpResponse.notModified().header(HttpHeaders.ETAG, book.getEtag());
+        }
+        return HttpResponse.ok(book.getJson())
+                .contentType(MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.ETAG, book.getEtag());
+    }
+
     protected URI location(UUID id) {
         return URI.create("/books/" + id);
     }
@@ -0,0 +1,50 @@
+package example.micronaut.controllers;
+
+import example.micronaut.services.BookPage;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.exceptions.HttpStatusException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor handed to clients, it wraps the id of the last book on a page.
+ */
+public final class BookCursor {
+
+    private BookCursor() {}
+
+    public static String encode(UUID id) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    public static UUID decode(String cursor) {
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != 16) {
+                throw new IllegalArgumentException("cursor must be 16 bytes");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        } catch (IllegalArgumentException e) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Adds a Link header pointing at the page after this one, if there is one. The path may carry a query string of
+     * its own.
+     */
+    public static <T> MutableHttpResponse<T> withNextLink(MutableHttpResponse<T> response, String path, BookPage page, int limit) {
+        if (page.getNext() != null) {
+            response.header(HttpHeaders.LINK, "<" + path + (path.indexOf('?') < 0 ? "?" : "&") + "after=" + encode(page.getNext()) + "&limit=" + limit + ">; rel=\"next\"");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,105 @@
+package example.micronaut.controllers;
+
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MutableHttpResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+/**
+ * Strong entity tags derived from the version columns. A book's tag covers its own version and the id and
+ * version of each of its genres, so renaming a genre changes the tag of every book in it.
+ */
+public final class ETags {
+
+    private ETags() {}
+
+    /**
+     * @param versionTag the same string BookRepository.findVersionTagById produces
+     */
+    public static String of(String versionTag) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(versionTag.getBytes(StandardCharsets.UTF_8));
+            StringBuilder etag = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) {
+                etag.append(Character.forDigit((digest[i] >> 4) & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String book(Book book) {
+        return of(versionTag(book));
+    }
+
+    public static String books(Collection<Book> books) {
+        return of(books.stream()
+                .map(book -> book.getId() + "=" + versionTag(book))
+                .collect(Collectors.joining(";")));
+    }
+
+    public static String genre(long version) {
+        return of(Long.toString(version));
+    }
+
+    public static String genre(Genre genre) {
+        return genre(genre.getVersion());
+    }
+
+    public static String genres(Collection<Genre> genres) {
+        return of(genres.stream()
+                .map(genre -> genre.getId() + "=" + genre.getVersion())
+                .collect(Collectors.joining(";")));
+    }
+
+    /**
+     * Whether an If-None-Match header value matches the current tag, weak tags compare by their opaque part.
+     */
+    public static boolean matches(@Nullable String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 304 with the tag when it matches, otherwise 200 with the body and the tag.
+     */
+    public static <T> MutableHttpResponse<T> conditional(T body, String etag, @Nullable String ifNoneMatch) {
+        MutableHttpResponse<T> response = matches(ifNoneMatch, etag) ? HttpResponse.notModified() : HttpResponse.ok(body);
+        return response.header(HttpHeaders.ETAG, etag);
+    }
+
+    // uuid ordering in Postgres matches the ordering of the lower case hex strings, not UUID.compareTo
+    private static String versionTag(Book book) {
+        if (book.getGenres() == null) {
+            return book.getVersion() + ":";
+        }
+        return book.getVersion() + ":" + book.getGenres().stream()
+                .sorted(Comparator.comparing(genre -> genre.getId().toString()))
+                .map(genre -> genre.getId() + "." + genre.getVersion())
+                .collect(Collectors.joining(","));
+    }
+}
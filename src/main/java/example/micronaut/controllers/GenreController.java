@@ -1,41 +1,83 @@
 package example.micronaut.controllers;
 
+import example.micronaut.codecs.BinaryMediaTypes;
+import example.micronaut.commands.GenreDeleteCommand;
 import example.micronaut.commands.GenreUpdateCommand;
+import example.micronaut.domain.Book;
 import example.micronaut.domain.Genre;
-import example.micronaut.services.GenreRepository;
+import example.micronaut.responses.BulkDeleteResult;
+import example.micronaut.responses.CacheStats;
+import example.micronaut.responses.GenreBookCount;
+import example.micronaut.services.BookService;
+import example.micronaut.services.GenreCache;
+import example.micronaut.services.GenreService;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.data.exceptions.DataAccessException;
 import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
 import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.*;
 import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
 
 @Controller("/genres")  // <1>
+@Produces({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_SMILE, BinaryMediaTypes.APPLICATION_CBOR})
+@Consumes({MediaType.APPLICATION_JSON, BinaryMediaTypes.APPLICATION_SMILE, BinaryMediaTypes.APPLICATION_CBOR})
 public class GenreController {
 
-    protected final GenreRepository genreRepository;
+    protected final GenreService genreService;
+    protected final BookService bookService;
 
-    public GenreController(GenreRepository genreRepository) { // <2>
-        this.genreRepository = genreRepository;
+    public GenreController(GenreService genreService, BookService bookService) { // <2>
+        this.genreService = genreService;
+        this.bookService = bookService;
+    }
+
+    @Get
+    public Mono<List<Genre>> findAll(@QueryValue @NotEmpty @Size(max = 1000) List<UUID> ids) {
+        return genreService.findAllByIdInOrder(ids);
     }
 
     @Get("/{id}") // <3>
-    public Mono<Genre> show(UUID id) {
-        return genreRepository
-                .findById(id); // <4>
+    public Mono<HttpResponse<Genre>> show(UUID id, @Nullable @Header(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return genreService.findById(id) // <4>
+                    .map(genre -> HttpResponse.ok(genre).header(HttpHeaders.ETAG, ETags.genre(genre)));
+        }
+        return genreService.findVersionById(id)
+                .map(ETags::genre)
+                .flatMap(etag -> ETags.matches(ifNoneMatch, etag)
+                        ? Mono.just(HttpResponse.<Genre>notModified().header(HttpHeaders.ETAG, etag))
+                        : genreService.findById(id).map(genre -> HttpResponse.ok(genre).header(HttpHeaders.ETAG, ETags.genre(genre))));
+    }
+
+    @Get("/{id}/books")
+    public Mono<HttpResponse<List<Book>>> books(UUID id,
+                                                @Nullable @QueryValue String after,
+                                                @QueryValue(defaultValue = "100") @Positive @Max(1000) int limit,
+                                                @Nullable @Header(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        UUID afterId = after == null ? null : BookCursor.decode(after);
+        return genreService.findById(id)
+                .flatMap(genre -> bookService.listByGenre(id, afterId, limit))
+                .map(page -> BookCursor.withNextLink(ETags.conditional(page.getBooks(), ETags.books(page.getBooks()), ifNoneMatch),
+                        "/genres/" + id + "/books", page, limit));
     }
 
     @Put // <5>
     public Mono<HttpResponse<Genre>> update(@Body @Valid GenreUpdateCommand command) { // <6>
-        return genreRepository.update(command.getId(), command.getName())
+        return genreService.update(command.getId(), command.getName())
                 .map(e -> HttpResponse
                         .<Genre>noContent()
                         .header(HttpHeaders.LOCATION, location(command.getId()).getPath())); // <7>
@@ -43,21 +85,23 @@ public class GenreController {
     }
 
     @Get("/list") // <8>
-    public Mono<List<Genre>> list(@Valid Pageable pageable) { // <9>
-        return genreRepository.findAll(pageable)
-                .map(Page::getContent);
+    public Mono<HttpResponse<List<Genre>>> list(@Valid Pageable pageable, // <9>
+                                                @Nullable @Header(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
+        return genreService.findAll(pageable)
+                .map(Page::getContent)
+                .map(genres -> ETags.conditional(genres, ETags.genres(genres), ifNoneMatch));
     }
 
     @Post // <10>
     public Mono<HttpResponse<Genre>> save(@Body("name") @NotBlank String name) {
-        return genreRepository.save(name)
+        return genreService.save(name)
                 .map(genre -> HttpResponse.created(genre)
                         .headers(headers -> headers.location(location(genre.getId()))));
     }
 
     @Post("/ex") // <11>
     public Mono<MutableHttpResponse<Genre>> saveExceptions(@Body @NotBlank String name) {
-        return genreRepository
+        return genreService
                 .saveWithException(name)
                 .map(genre -> HttpResponse
                         .created(genre)
@@ -68,10 +112,26 @@ public class GenreController {
 
     @Delete("/{id}") // <12>
     public Mono<HttpResponse<?>> delete(UUID id) {
-        return genreRepository.deleteById(id)
+        return genreService.deleteById(id)
                 .map(deleteId -> HttpResponse.noContent());
     }
 
+    @Post("/delete")
+    public Mono<BulkDeleteResult> deleteAll(@Body @Valid GenreDeleteCommand command) {
+        return genreService.deleteAll(command.getIds());
+    }
+
+    @Get("/stats")
+    public Mono<List<GenreBookCount>> stats() {
+        return genreService.stats();
+    }
+
+    @Get("/cache")
+    public CacheStats cache() {
+        GenreCache cache = genreService.getCache();
+        return new CacheStats(cache.size(), cache.getMaxSize(), cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+
     protected URI location(UUID id) {
         return URI.create("/genres/" + id);
     }
@@ -0,0 +1,39 @@
+package example.micronaut.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micronaut.context.BeanContext;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.flyway.event.MigrationFinishedEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+
+/**
+ * The Hikari pool is only used by Flyway, everything else goes through the Vert.x pool, so its connections are
+ * given back once the migration is done. Kept open with jdbc.close-after-migration=false.
+ */
+@Singleton
+@Requires(property = "jdbc.close-after-migration", notEquals = "false")
+public class JdbcPoolCloser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcPoolCloser.class);
+
+    private final BeanContext beanContext;
+
+    public JdbcPoolCloser(BeanContext beanContext) {
+        this.beanContext = beanContext;
+    }
+
+    @EventListener
+    void onMigrationFinished(MigrationFinishedEvent event) {
+        for (DataSource dataSource : beanContext.getBeansOfType(DataSource.class)) {
+            if (dataSource instanceof HikariDataSource hikari && !hikari.isClosed()) {
+                LOG.info("Closing JDBC pool {} after migration", hikari.getPoolName());
+                hikari.close();
+            }
+        }
+    }
+}
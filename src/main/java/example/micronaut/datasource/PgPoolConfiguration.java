@@ -0,0 +1,92 @@
+package example.micronaut.datasource;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import io.micronaut.context.annotation.Context;
+
+import javax.validation.constraints.Min;
+
+/**
+ * Tuning for the Vert.x pg pool Hibernate Reactive runs on. Hibernate reads the values through the placeholders
+ * under jpa.default.properties in application.yml, this bean only exists so bad values fail at startup rather than
+ * being silently replaced by Hibernate's defaults.
+ */
+@Context
+@ConfigurationProperties("pg-pool")
+public class PgPoolConfiguration {
+
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final int DEFAULT_PIPELINING_LIMIT = 256;
+    public static final int DEFAULT_PREPARED_STATEMENT_CACHE_MAX_SIZE = 256;
+    public static final int DEFAULT_PREPARED_STATEMENT_CACHE_SQL_LIMIT = 2048;
+    public static final int DEFAULT_MAX_WAIT_QUEUE_SIZE = -1;
+
+    @Min(1)
+    private int maxSize = DEFAULT_MAX_SIZE;
+
+    @Min(1)
+    private int pipeliningLimit = DEFAULT_PIPELINING_LIMIT;
+
+    @Min(0)
+    private int preparedStatementCacheMaxSize = DEFAULT_PREPARED_STATEMENT_CACHE_MAX_SIZE;
+
+    @Min(1)
+    private int preparedStatementCacheSqlLimit = DEFAULT_PREPARED_STATEMENT_CACHE_SQL_LIMIT;
+
+    @Min(-1)
+    private int maxWaitQueueSize = DEFAULT_MAX_WAIT_QUEUE_SIZE;
+
+    /**
+     * @return the number of connections in the pool
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return how many queries may be in flight on one connection before waiting for responses, 1 disables pipelining
+     */
+    public int getPipeliningLimit() {
+        return pipeliningLimit;
+    }
+
+    public void setPipeliningLimit(int pipeliningLimit) {
+        this.pipeliningLimit = pipeliningLimit;
+    }
+
+    /**
+     * @return the number of prepared statements cached per connection, 0 disables the cache
+     */
+    public int getPreparedStatementCacheMaxSize() {
+        return preparedStatementCacheMaxSize;
+    }
+
+    public void setPreparedStatementCacheMaxSize(int preparedStatementCacheMaxSize) {
+        this.preparedStatementCacheMaxSize = preparedStatementCacheMaxSize;
+    }
+
+    /**
+     * @return the longest SQL string, in characters, that is cached
+     */
+    public int getPreparedStatementCacheSqlLimit() {
+        return preparedStatementCacheSqlLimit;
+    }
+
+    public void setPreparedStatementCacheSqlLimit(int preparedStatementCacheSqlLimit) {
+        this.preparedStatementCacheSqlLimit = preparedStatementCacheSqlLimit;
+    }
+
+    /**
+     * @return how many requests may wait for a connection before being rejected, -1 for no limit
+     */
+    public int getMaxWaitQueueSize() {
+        return maxWaitQueueSize;
+    }
+
+    public void setMaxWaitQueueSize(int maxWaitQueueSize) {
+        this.maxWaitQueueSize = maxWaitQueueSize;
+    }
+}
@@ -0,0 +1,35 @@
+package example.micronaut.datasource;
+
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.SqlConnectOptions;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.reactive.pool.impl.DefaultSqlClientPoolConfiguration;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Hibernate Reactive has no setting for the pg pipelining limit, so this adds hibernate.vertx.pg.pipelining_limit
+ * on top of its defaults. Selected with hibernate.vertx.pool.configuration_class.
+ */
+public class PipeliningSqlClientPoolConfiguration extends DefaultSqlClientPoolConfiguration {
+
+    public static final String PIPELINING_LIMIT = "hibernate.vertx.pg.pipelining_limit";
+
+    private int pipeliningLimit = PgPoolConfiguration.DEFAULT_PIPELINING_LIMIT;
+
+    @Override
+    public void configure(Map configuration) {
+        super.configure(configuration);
+        pipeliningLimit = ConfigurationHelper.getInt(PIPELINING_LIMIT, configuration, PgPoolConfiguration.DEFAULT_PIPELINING_LIMIT);
+    }
+
+    @Override
+    public SqlConnectOptions connectOptions(URI uri) {
+        SqlConnectOptions options = super.connectOptions(uri);
+        if (options instanceof PgConnectOptions pgOptions) {
+            pgOptions.setPipeliningLimit(pipeliningLimit);
+        }
+        return options;
+    }
+}
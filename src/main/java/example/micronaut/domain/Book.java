@@ -30,6 +30,9 @@ public class Book {
     )
     private Set<Genre> genres;
 
+    @Version
+    private long version;
+
     public void setId(UUID id) {
         this.id = id;
     }
@@ -50,12 +53,21 @@ public class Book {
         return genres;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Book{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", genres=" + genres +
+                ", version=" + version +
                 '}';
     }
 }
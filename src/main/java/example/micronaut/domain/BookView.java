@@ -0,0 +1,61 @@
+package example.micronaut.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.UUID;
+
+/**
+ * Denormalised read model of a book, genres holds the book's genres as a JSON array so a book can be read
+ * from a single row. Maintained by BookService and GenreService in the same transaction as the writes.
+ */
+@Entity
+@Table(name = "book_view")
+public class BookView {
+
+    @Id
+    private UUID id;
+
+    private String name;
+
+    @Column(columnDefinition = "text")
+    private String genres;
+
+    // copy of book.version, not a lock on this row
+    private long version;
+
+    public BookView() {}
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getGenres() {
+        return genres;
+    }
+
+    public void setGenres(String genres) {
+        this.genres = genres;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
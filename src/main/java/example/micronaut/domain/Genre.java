@@ -6,6 +6,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import java.util.UUID;
 
@@ -20,12 +21,20 @@ public class Genre {
     @NotNull
     private String name;
 
+    @Version
+    private long version;
+
     public Genre() {}
 
     public Genre(UUID id) {
         this.id = id;
     }
 
+    public Genre(UUID id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
     public UUID getId() {
         return id;
     }
@@ -42,11 +51,20 @@ public class Genre {
         this.name = name;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Genre{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
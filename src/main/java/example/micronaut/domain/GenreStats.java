@@ -0,0 +1,49 @@
+package example.micronaut.domain;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.UUID;
+
+/**
+ * Number of books carrying a genre, kept up to date by the statements that change book_genre so reads never
+ * have to count the join table.
+ */
+@Entity
+@Table(name = "genre_stats")
+public class GenreStats {
+
+    @Id
+    @Column(name = "genre_id")
+    private UUID genreId;
+
+    @Column(name = "book_count")
+    private long bookCount;
+
+    public GenreStats() {}
+
+    public UUID getGenreId() {
+        return genreId;
+    }
+
+    public void setGenreId(UUID genreId) {
+        this.genreId = genreId;
+    }
+
+    public long getBookCount() {
+        return bookCount;
+    }
+
+    public void setBookCount(long bookCount) {
+        this.bookCount = bookCount;
+    }
+
+    @Override
+    public String toString() {
+        return "GenreStats{" +
+                "genreId=" + genreId +
+                ", bookCount=" + bookCount +
+                '}';
+    }
+}
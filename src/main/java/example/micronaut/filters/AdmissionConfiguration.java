@@ -0,0 +1,149 @@
+package example.micronaut.filters;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * Tuning of the {@link GradientLimiter} that {@link AdmissionFilter} admits book and genre requests through.
+ */
+@ConfigurationProperties("admission")
+public class AdmissionConfiguration {
+
+    private boolean enabled = true;
+
+    @Min(1)
+    private int initialLimit = 20;
+
+    @Min(1)
+    private int minLimit = 4;
+
+    @Min(1)
+    private int maxLimit = 200;
+
+    @DecimalMin("0.01")
+    @DecimalMax("1.0")
+    private double smoothing = 0.2;
+
+    @DecimalMin("1.0")
+    private double tolerance = 2.0;
+
+    @DecimalMin("0.01")
+    @DecimalMax("1.0")
+    private double writeShare = 0.75;
+
+    @DecimalMin("0.01")
+    @DecimalMax("1.0")
+    private double bulkShare = 0.25;
+
+    @NotNull
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    @NotNull
+    private Duration poolSampleInterval = Duration.ofMillis(100);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the concurrency limit before any latency was observed
+     */
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @return how far each sample moves the limit towards the value it suggests, 1 jumps straight there
+     */
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    /**
+     * @return how many times the long term latency a sample may take before the limit shrinks
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return the fraction of the limit single writes may fill
+     */
+    public double getWriteShare() {
+        return writeShare;
+    }
+
+    public void setWriteShare(double writeShare) {
+        this.writeShare = writeShare;
+    }
+
+    /**
+     * @return the fraction of the limit batch saves and bulk deletes may fill
+     */
+    public double getBulkShare() {
+        return bulkShare;
+    }
+
+    public void setBulkShare(double bulkShare) {
+        this.bulkShare = bulkShare;
+    }
+
+    /**
+     * @return sent as Retry-After with every rejection
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return how often the pg pool's wait queue depth is read
+     */
+    public Duration getPoolSampleInterval() {
+        return poolSampleInterval;
+    }
+
+    public void setPoolSampleInterval(Duration poolSampleInterval) {
+        this.poolSampleInterval = poolSampleInterval;
+    }
+}
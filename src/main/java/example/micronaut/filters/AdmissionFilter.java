@@ -0,0 +1,54 @@
+package example.micronaut.filters;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.core.async.publisher.Publishers;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Admits book and genre requests through the {@link GradientLimiter} and turns the rest away at once with 503 and
+ * Retry-After, before they take a pg pool connection or a place in its wait queue. Streaming routes release their
+ * slot without a latency sample, one export of several minutes would otherwise drag the limit and the long term
+ * latency with it. Switched off with admission.enabled=false.
+ */
+@Filter({"/books/**", "/genres/**"})
+@Requires(property = "admission.enabled", notEquals = "false")
+public class AdmissionFilter implements HttpServerFilter {
+
+    private final GradientLimiter limiter;
+    private final PoolQueueDepth poolQueueDepth;
+    private final String retryAfter;
+
+    public AdmissionFilter(GradientLimiter limiter, PoolQueueDepth poolQueueDepth, AdmissionConfiguration configuration) {
+        this.limiter = limiter;
+        this.poolQueueDepth = poolQueueDepth;
+        this.retryAfter = Long.toString(Math.max(1, configuration.getRetryAfter().toSeconds()));
+    }
+
+    @Override
+    public Publisher<MutableHttpResponse<?>> doFilter(HttpRequest<?> request, ServerFilterChain chain) {
+        if (!limiter.tryAcquire(Priority.of(request))) {
+            return Publishers.just(HttpResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfter));
+        }
+        long start = System.nanoTime();
+        boolean sampled = Priority.sampled(request);
+        return Flux.from(chain.proceed(request))
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL || !sampled) {
+                        limiter.release();
+                    } else {
+                        limiter.release(System.nanoTime() - start, poolQueueDepth.get());
+                    }
+                });
+    }
+}
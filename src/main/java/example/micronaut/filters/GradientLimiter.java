@@ -0,0 +1,109 @@
+package example.micronaut.filters;
+
+import jakarta.inject.Singleton;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive concurrency limit in the style of Netflix's gradient limiter. Each completed request compares its
+ * latency with a long term average. When requests take more than {@link AdmissionConfiguration#getTolerance()}
+ * times longer, the limit shrinks by their ratio. Otherwise it grows by its square root. While the pg pool has
+ * waiters the limit shrinks by the queue depth instead of growing, so requests wait here, where they can be
+ * rejected, rather than in the pool.
+ * <p>
+ * Samples taken while less than half the limit is in use are ignored, they say nothing about capacity.
+ */
+@Singleton
+public class GradientLimiter {
+
+    // samples the long term latency average spans
+    private static final int LONG_WINDOW = 600;
+
+    private final AdmissionConfiguration configuration;
+    private final Map<Priority, Double> shares = new EnumMap<>(Priority.class);
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Map<Priority, LongAdder> admitted = new EnumMap<>(Priority.class);
+    private final Map<Priority, LongAdder> rejected = new EnumMap<>(Priority.class);
+    private volatile double limit;
+    private double longRtt;
+
+    public GradientLimiter(AdmissionConfiguration configuration) {
+        this.configuration = configuration;
+        this.limit = configuration.getInitialLimit();
+        shares.put(Priority.READ, 1.0);
+        shares.put(Priority.WRITE, configuration.getWriteShare());
+        shares.put(Priority.BULK, configuration.getBulkShare());
+        for (Priority priority : Priority.values()) {
+            admitted.put(priority, new LongAdder());
+            rejected.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * Takes a slot unless the requests in flight already fill this priority's share of the limit, every
+     * successful call must be followed by one release.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int max = Math.max(1, (int) (limit * shares.get(priority)));
+        while (true) {
+            int current = inflight.get();
+            if (current >= max) {
+                rejected.get(priority).increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                admitted.get(priority).increment();
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees a slot and adapts the limit to the request's latency.
+     *
+     * @param poolQueue the pg pool's wait queue depth when the request completed
+     */
+    public void release(long rttNanos, int poolQueue) {
+        int current = inflight.getAndDecrement();
+        update(Math.max(1, rttNanos), current, poolQueue);
+    }
+
+    /**
+     * Frees a slot without a sample, for requests that were cancelled.
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    private synchronized void update(long rtt, int inflight, int poolQueue) {
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        double current = limit;
+        if (inflight < current / 2 && poolQueue == 0) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, configuration.getTolerance() * longRtt / rtt));
+        double headroom = poolQueue > 0 ? -Math.min(poolQueue, current / 2) : Math.sqrt(current);
+        double next = current * (1 - configuration.getSmoothing())
+                + (current * gradient + headroom) * configuration.getSmoothing();
+        limit = Math.max(configuration.getMinLimit(), Math.min(configuration.getMaxLimit(), next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getAdmitted(Priority priority) {
+        return admitted.get(priority).sum();
+    }
+
+    public long getRejected(Priority priority) {
+        return rejected.get(priority).sum();
+    }
+}
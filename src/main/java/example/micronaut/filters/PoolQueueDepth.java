@@ -0,0 +1,38 @@
+package example.micronaut.filters;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.search.Search;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+
+/**
+ * The number of requests waiting for a connection of the Hibernate Reactive pg pool, read from the Vert.x pool
+ * gauges every admission.pool-sample-interval so the request path only reads a field.
+ */
+@Singleton
+public class PoolQueueDepth {
+
+    private final MeterRegistry meterRegistry;
+    private volatile int depth;
+
+    public PoolQueueDepth(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public int get() {
+        return depth;
+    }
+
+    // the registry may hold the name in its dotted or its Prometheus form
+    @Scheduled(fixedDelay = "${admission.pool-sample-interval:100ms}")
+    void sample() {
+        depth = (int) Search.in(meterRegistry)
+                .name(name -> name.replace('_', '.').equals("vertx.pool.queue.pending"))
+                .tag("pool_type", "sql")
+                .gauges()
+                .stream()
+                .mapToDouble(Gauge::value)
+                .sum();
+    }
+}
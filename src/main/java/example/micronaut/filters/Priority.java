@@ -0,0 +1,38 @@
+package example.micronaut.filters;
+
+import io.micronaut.http.HttpMethod;
+import io.micronaut.http.HttpRequest;
+
+import java.util.Set;
+
+/**
+ * Admission classes, reads may fill the whole limit while writes and bulk requests only get a share of it so they
+ * are shed first. Bulk requests are the batch saves and bulk deletes and the routes that stream the whole
+ * catalogue in or out.
+ */
+public enum Priority {
+
+    READ,
+    WRITE,
+    BULK;
+
+    private static final Set<String> BULK_PATHS = Set.of("/books/batch", "/books/delete", "/books/import", "/genres/delete");
+
+    // take as long as the catalogue is large, their latency says nothing about the database's capacity
+    private static final Set<String> STREAMING_PATHS = Set.of("/books/stream", "/books/export", "/books/import");
+
+    static Priority of(HttpRequest<?> request) {
+        if (BULK_PATHS.contains(request.getPath()) || STREAMING_PATHS.contains(request.getPath())) {
+            return BULK;
+        }
+        HttpMethod method = request.getMethod();
+        return method == HttpMethod.GET || method == HttpMethod.HEAD ? READ : WRITE;
+    }
+
+    /**
+     * Whether the request's latency may adapt the limit, streaming routes are admitted but not sampled.
+     */
+    static boolean sampled(HttpRequest<?> request) {
+        return !STREAMING_PATHS.contains(request.getPath());
+    }
+}
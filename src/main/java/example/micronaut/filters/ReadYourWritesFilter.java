@@ -0,0 +1,60 @@
+package example.micronaut.filters;
+
+import example.micronaut.services.ReadRouting;
+import example.micronaut.services.ReplicaConfiguration;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpMethod;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.cookie.Cookie;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+/**
+ * Keeps a client's reads on the primary for replica.read-your-writes after each of its successful writes. The end
+ * of the window travels in a cookie, so it holds whichever node serves the client's next request.
+ */
+@Filter({"/books/**", "/genres/**"})
+@Requires(property = "replica.enabled", value = "true")
+public class ReadYourWritesFilter implements HttpServerFilter {
+
+    private final ReplicaConfiguration configuration;
+
+    public ReadYourWritesFilter(ReplicaConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public Publisher<MutableHttpResponse<?>> doFilter(HttpRequest<?> request, ServerFilterChain chain) {
+        long now = System.currentTimeMillis();
+        request.getCookies().findCookie(configuration.getCookieName())
+                .map(Cookie::getValue)
+                .filter(until -> isAfter(until, now))
+                .ifPresent(until -> request.setAttribute(ReadRouting.PRIMARY_READS, true));
+        boolean write = request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD;
+        if (!write || configuration.getReadYourWrites().isZero()) {
+            return chain.proceed(request);
+        }
+        return Flux.from(chain.proceed(request))
+                .doOnNext(response -> {
+                    if (response.getStatus().getCode() < 300) {
+                        long until = System.currentTimeMillis() + configuration.getReadYourWrites().toMillis();
+                        response.cookie(Cookie.of(configuration.getCookieName(), Long.toString(until))
+                                .maxAge(configuration.getReadYourWrites())
+                                .path("/")
+                                .httpOnly(true));
+                    }
+                });
+    }
+
+    private static boolean isAfter(String until, long now) {
+        try {
+            return Long.parseLong(until) > now;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
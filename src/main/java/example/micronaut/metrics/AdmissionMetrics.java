@@ -0,0 +1,49 @@
+package example.micronaut.metrics;
+
+import example.micronaut.filters.GradientLimiter;
+import example.micronaut.filters.PoolQueueDepth;
+import example.micronaut.filters.Priority;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+
+import java.util.Locale;
+
+/**
+ * Publishes the admission limit, the requests in flight against it, the pool wait queue it reacts to, and the
+ * requests admitted and rejected per priority.
+ */
+@Singleton
+public class AdmissionMetrics implements MeterBinder {
+
+    private final GradientLimiter limiter;
+    private final PoolQueueDepth poolQueueDepth;
+
+    public AdmissionMetrics(GradientLimiter limiter, PoolQueueDepth poolQueueDepth) {
+        this.limiter = limiter;
+        this.poolQueueDepth = poolQueueDepth;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("admission.limit", limiter, GradientLimiter::getLimit)
+                .register(registry);
+        Gauge.builder("admission.inflight", limiter, GradientLimiter::getInflight)
+                .register(registry);
+        Gauge.builder("admission.pool.queue", poolQueueDepth, PoolQueueDepth::get)
+                .register(registry);
+        for (Priority priority : Priority.values()) {
+            String tag = priority.name().toLowerCase(Locale.ROOT);
+            FunctionCounter.builder("admission.requests", limiter, l -> l.getAdmitted(priority))
+                    .tag("priority", tag)
+                    .tag("result", "admitted")
+                    .register(registry);
+            FunctionCounter.builder("admission.requests", limiter, l -> l.getRejected(priority))
+                    .tag("priority", tag)
+                    .tag("result", "rejected")
+                    .register(registry);
+        }
+    }
+}
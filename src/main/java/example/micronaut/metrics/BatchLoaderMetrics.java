@@ -0,0 +1,34 @@
+package example.micronaut.metrics;
+
+import example.micronaut.services.BatchLoader;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+
+import java.util.List;
+
+/**
+ * Counts, per {@link BatchLoader}, the queries run and the keys they resolved, keys over batches is the mean batch size.
+ */
+@Singleton
+public class BatchLoaderMetrics implements MeterBinder {
+
+    private final List<BatchLoader<?, ?>> loaders;
+
+    public BatchLoaderMetrics(List<BatchLoader<?, ?>> loaders) {
+        this.loaders = loaders;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (BatchLoader<?, ?> loader : loaders) {
+            FunctionCounter.builder("batchloader.batches", loader, BatchLoader::getBatches)
+                    .tag("name", loader.getName())
+                    .register(registry);
+            FunctionCounter.builder("batchloader.keys", loader, BatchLoader::getKeys)
+                    .tag("name", loader.getName())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package example.micronaut.metrics;
+
+import example.micronaut.services.BookCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+
+/**
+ * Exposes the {@link BookCache} counters using Micrometer's cache meter names, plus the bytes held.
+ */
+@Singleton
+public class BookCacheMetrics implements MeterBinder {
+
+    private final BookCache bookCache;
+
+    public BookCacheMetrics(BookCache bookCache) {
+        this.bookCache = bookCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", bookCache, BookCache::getHits)
+                .tag("cache", "book").tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", bookCache, BookCache::getMisses)
+                .tag("cache", "book").tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", bookCache, BookCache::getEvictions)
+                .tag("cache", "book")
+                .register(registry);
+        Gauge.builder("cache.size", bookCache, BookCache::size)
+                .tag("cache", "book")
+                .register(registry);
+        Gauge.builder("cache.weight", bookCache, BookCache::weight)
+                .tag("cache", "book")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
@@ -0,0 +1,37 @@
+package example.micronaut.metrics;
+
+import example.micronaut.services.GenreCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+
+/**
+ * Exposes the {@link GenreCache} counters using Micrometer's cache meter names.
+ */
+@Singleton
+public class GenreCacheMetrics implements MeterBinder {
+
+    private final GenreCache genreCache;
+
+    public GenreCacheMetrics(GenreCache genreCache) {
+        this.genreCache = genreCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", genreCache, GenreCache::getHits)
+                .tag("cache", "genre").tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", genreCache, GenreCache::getMisses)
+                .tag("cache", "genre").tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", genreCache, GenreCache::getEvictions)
+                .tag("cache", "genre")
+                .register(registry);
+        Gauge.builder("cache.size", genreCache, GenreCache::size)
+                .tag("cache", "genre")
+                .register(registry);
+    }
+}
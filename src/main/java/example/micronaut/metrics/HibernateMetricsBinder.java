@@ -0,0 +1,31 @@
+package example.micronaut.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.micronaut.context.BeanProvider;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import jakarta.inject.Singleton;
+import org.hibernate.SessionFactory;
+
+/**
+ * Publishes Hibernate statistics, statement and query execution counts among them, for each session factory
+ * as it is created. Needs hibernate.generate_statistics.
+ */
+@Singleton
+public class HibernateMetricsBinder implements BeanCreatedEventListener<SessionFactory> {
+
+    private final BeanProvider<MeterRegistry> meterRegistry;
+
+    public HibernateMetricsBinder(BeanProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public SessionFactory onCreated(BeanCreatedEvent<SessionFactory> event) {
+        String name = event.getBeanIdentifier().getName();
+        HibernateMetrics.monitor(meterRegistry.get(), event.getBean(), name, Tags.empty());
+        return event.getBean();
+    }
+}
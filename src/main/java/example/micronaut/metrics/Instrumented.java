@@ -0,0 +1,38 @@
+package example.micronaut.metrics;
+
+import io.micronaut.aop.Around;
+import io.micronaut.context.annotation.Type;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Times every public method of the annotated bean, for reactive results the timer runs from subscription to
+ * termination rather than around the assembly of the pipeline.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Around
+@Type(InstrumentedInterceptor.class)
+public @interface Instrumented {
+
+    /**
+     * @return the timer name, component and method are added as tags
+     */
+    String value();
+
+    /**
+     * @return the component tag, needed on repositories whose inherited CRUD methods are declared elsewhere
+     */
+    String component() default "";
+
+    /**
+     * @return whether each call is an operation whose repository calls and transactions are counted, nested
+     * operations count towards the outermost one
+     */
+    boolean operation() default false;
+}
@@ -0,0 +1,129 @@
+package example.micronaut.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.aop.InterceptedMethod;
+import io.micronaut.aop.MethodInterceptor;
+import io.micronaut.aop.MethodInvocationContext;
+import io.micronaut.transaction.annotation.TransactionalAdvice;
+import jakarta.inject.Singleton;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+@Singleton
+public class InstrumentedInterceptor implements MethodInterceptor<Object, Object> {
+
+    private final MeterRegistry meterRegistry;
+
+    public InstrumentedInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(MethodInvocationContext<Object, Object> context) {
+        String name = context.stringValue(Instrumented.class).orElse("method");
+        InterceptedMethod interceptedMethod = InterceptedMethod.of(context);
+        switch (interceptedMethod.resultType()) {
+            case PUBLISHER:
+                Publisher<?> publisher = interceptedMethod.interceptResultAsPublisher();
+                return interceptedMethod.handleResult(Flux.deferContextual(view -> {
+                    long start = System.nanoTime();
+                    RepositoryCallCounter counter = view.getOrDefault(RepositoryCallCounter.class, null);
+                    boolean outermost = counter == null && context.booleanValue(Instrumented.class, "operation").orElse(false);
+                    if (outermost) {
+                        counter = new RepositoryCallCounter();
+                    }
+                    boolean newTransaction = counter != null
+                            && context.hasStereotype(TransactionalAdvice.class)
+                            && !view.hasKey(RepositoryCallCounter.IN_TRANSACTION);
+                    if (counter != null) {
+                        if (newTransaction) {
+                            counter.transaction();
+                        }
+                        // default methods only compose generated ones, which are counted on their own
+                        if (context.isAbstract()) {
+                            counter.call();
+                        }
+                    }
+                    RepositoryCallCounter operation = counter;
+                    Flux<?> result = Flux.from(publisher)
+                            .doFinally(signal -> {
+                                record(name, context, outcome(signal), start);
+                                if (outermost) {
+                                    recordCalls(name, context, operation);
+                                }
+                            });
+                    if (newTransaction) {
+                        result = result.contextWrite(ctx -> ctx.put(RepositoryCallCounter.IN_TRANSACTION, true));
+                    }
+                    if (outermost) {
+                        result = result.contextWrite(ctx -> ctx.put(RepositoryCallCounter.class, operation));
+                    }
+                    return result;
+                }));
+            case COMPLETION_STAGE:
+                long stageStart = System.nanoTime();
+                CompletionStage<?> stage = interceptedMethod.interceptResultAsCompletionStage();
+                return interceptedMethod.handleResult(stage.whenComplete((result, e) ->
+                        record(name, context, e == null ? "success" : "error", stageStart)));
+            case SYNCHRONOUS:
+                long start = System.nanoTime();
+                String outcome = "error";
+                try {
+                    Object result = context.proceed();
+                    outcome = "success";
+                    return result;
+                } finally {
+                    record(name, context, outcome, start);
+                }
+            default:
+                return interceptedMethod.unsupported();
+        }
+    }
+
+    private void record(String name, MethodInvocationContext<Object, Object> context, String outcome, long start) {
+        Timer.builder(name)
+                .tag("component", component(context))
+                .tag("method", context.getMethodName())
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordCalls(String name, MethodInvocationContext<Object, Object> context, RepositoryCallCounter counter) {
+        DistributionSummary.builder(name + ".repository.calls")
+                .tag("component", component(context))
+                .tag("method", context.getMethodName())
+                .register(meterRegistry)
+                .record(counter.getCalls());
+        DistributionSummary.builder(name + ".transactions")
+                .tag("component", component(context))
+                .tag("method", context.getMethodName())
+                .register(meterRegistry)
+                .record(counter.getTransactions());
+    }
+
+    private static String component(MethodInvocationContext<Object, Object> context) {
+        return context.stringValue(Instrumented.class, "component")
+                .filter(component -> !component.isEmpty())
+                .orElseGet(() -> context.getDeclaringType().getSimpleName());
+    }
+
+    private static String outcome(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case CANCEL:
+                return "cancelled";
+            default:
+                return "error";
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package example.micronaut.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micronaut.context.annotation.Context;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Adds the application registry to Micrometer's global registry, meters that were registered globally before
+ * this ran are copied over as well.
+ */
+@Context
+public class MeterRegistryBridge {
+
+    private final MeterRegistry meterRegistry;
+
+    public MeterRegistryBridge(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Metrics.addRegistry(meterRegistry);
+    }
+
+    @PreDestroy
+    void close() {
+        Metrics.removeRegistry(meterRegistry);
+    }
+}
@@ -0,0 +1,35 @@
+package example.micronaut.metrics;
+
+import io.micrometer.core.instrument.Metrics;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.micrometer.Label;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import org.hibernate.reactive.vertx.VertxInstance;
+import org.hibernate.service.spi.Stoppable;
+
+import java.util.EnumSet;
+
+/**
+ * The Vert.x instance Hibernate Reactive runs its pg pool on, created with Micrometer metrics so pool usage,
+ * wait queue depth and acquisition time are published. Meters go to the global registry because Hibernate
+ * creates this long before it could be handed a bean, {@link MeterRegistryBridge} forwards them to ours.
+ */
+public class MetricsVertxInstance implements VertxInstance, Stoppable {
+
+    private final Vertx vertx = Vertx.vertx(new VertxOptions()
+            .setMetricsOptions(new MicrometerMetricsOptions()
+                    .setEnabled(true)
+                    .setMicrometerRegistry(Metrics.globalRegistry)
+                    .setLabels(EnumSet.of(Label.POOL_TYPE, Label.POOL_NAME, Label.REMOTE))));
+
+    @Override
+    public Vertx getVertx() {
+        return vertx;
+    }
+
+    @Override
+    public void stop() {
+        vertx.close();
+    }
+}
@@ -0,0 +1,17 @@
+package example.micronaut.metrics;
+
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.reactive.vertx.VertxInstance;
+import org.hibernate.service.spi.ServiceContributor;
+
+/**
+ * Registered through META-INF/services so Hibernate Reactive uses {@link MetricsVertxInstance} instead of
+ * creating its own Vert.x.
+ */
+public class MetricsVertxServiceContributor implements ServiceContributor {
+
+    @Override
+    public void contribute(StandardServiceRegistryBuilder serviceRegistryBuilder) {
+        serviceRegistryBuilder.addService(VertxInstance.class, new MetricsVertxInstance());
+    }
+}
@@ -0,0 +1,39 @@
+package example.micronaut.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Repository calls and transactions of one service operation, carried in the Reactor context from the outermost
+ * {@link Instrumented#operation()} call down to the repository calls it makes.
+ * <p>
+ * A call is one generated repository method, not one SQL statement. Methods such as saveAll issue a statement per
+ * entity and its join rows, the vertx_sql meters count what the driver actually sends. A transaction started inside
+ * the operation costs a BEGIN and a COMMIT. Lookups resolved by a batch loader or single flight run outside the
+ * caller's context and are not counted against it.
+ */
+final class RepositoryCallCounter {
+
+    /**
+     * Context key present while a transaction started inside the operation is open.
+     */
+    static final String IN_TRANSACTION = RepositoryCallCounter.class.getName() + ".inTransaction";
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger transactions = new AtomicInteger();
+
+    void call() {
+        calls.incrementAndGet();
+    }
+
+    void transaction() {
+        transactions.incrementAndGet();
+    }
+
+    int getCalls() {
+        return calls.get();
+    }
+
+    int getTransactions() {
+        return transactions.get();
+    }
+}
@@ -0,0 +1,38 @@
+package example.micronaut.metrics;
+
+import example.micronaut.services.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+
+import java.util.List;
+
+/**
+ * Counts, per {@link SingleFlight}, the calls that ran a load and the calls that were coalesced onto one.
+ */
+@Singleton
+public class SingleFlightMetrics implements MeterBinder {
+
+    private final List<SingleFlight<?, ?>> flights;
+
+    public SingleFlightMetrics(List<SingleFlight<?, ?>> flights) {
+        this.flights = flights;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (SingleFlight<?, ?> flight : flights) {
+            FunctionCounter.builder("singleflight.calls", flight, SingleFlight::getLoads)
+                    .tag("name", flight.getName()).tag("result", "load")
+                    .register(registry);
+            FunctionCounter.builder("singleflight.calls", flight, SingleFlight::getCoalesced)
+                    .tag("name", flight.getName()).tag("result", "coalesced")
+                    .register(registry);
+            Gauge.builder("singleflight.in.flight", flight, SingleFlight::inFlight)
+                    .tag("name", flight.getName())
+                    .register(registry);
+        }
+    }
+}
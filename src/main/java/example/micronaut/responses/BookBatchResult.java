@@ -0,0 +1,45 @@
+package example.micronaut.responses;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one command in a batch, index is its position in the request and exactly one of id or error is set.
+ */
+@Serdeable
+public class BookBatchResult {
+
+    private final long index;
+    private final UUID id;
+    private final String error;
+
+    public BookBatchResult(long index, @Nullable UUID id, @Nullable String error) {
+        this.index = index;
+        this.id = id;
+        this.error = error;
+    }
+
+    public static BookBatchResult created(long index, UUID id) {
+        return new BookBatchResult(index, id, null);
+    }
+
+    public static BookBatchResult failed(long index, String error) {
+        return new BookBatchResult(index, null, error);
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    @Nullable
+    public UUID getId() {
+        return id;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,36 @@
+package example.micronaut.responses;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+/**
+ * Rows removed by a bulk delete, links are the book_genre rows.
+ */
+@Serdeable
+public class BulkDeleteResult {
+
+    private final long books;
+    private final long genres;
+    private final long links;
+
+    public BulkDeleteResult(long books, long genres, long links) {
+        this.books = books;
+        this.genres = genres;
+        this.links = links;
+    }
+
+    public BulkDeleteResult plus(BulkDeleteResult other) {
+        return new BulkDeleteResult(books + other.books, genres + other.genres, links + other.links);
+    }
+
+    public long getBooks() {
+        return books;
+    }
+
+    public long getGenres() {
+        return genres;
+    }
+
+    public long getLinks() {
+        return links;
+    }
+}
@@ -0,0 +1,41 @@
+package example.micronaut.responses;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+@Serdeable
+public class CacheStats {
+
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    public CacheStats(int size, int maxSize, long hits, long misses, long evictions) {
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,31 @@
+package example.micronaut.responses;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.UUID;
+
+@Serdeable
+public class GenreBookCount {
+
+    private final UUID id;
+    private final String name;
+    private final long books;
+
+    public GenreBookCount(UUID id, String name, long books) {
+        this.id = id;
+        this.name = name;
+        this.books = books;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBooks() {
+        return books;
+    }
+}
@@ -0,0 +1,35 @@
+package example.micronaut.responses;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+@Serdeable
+public class GenreIndexStats {
+
+    private final int books;
+    private final int genres;
+    private final long bitmapBytes;
+    private final long buildMillis;
+
+    public GenreIndexStats(int books, int genres, long bitmapBytes, long buildMillis) {
+        this.books = books;
+        this.genres = genres;
+        this.bitmapBytes = bitmapBytes;
+        this.buildMillis = buildMillis;
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public int getGenres() {
+        return genres;
+    }
+
+    public long getBitmapBytes() {
+        return bitmapBytes;
+    }
+
+    public long getBuildMillis() {
+        return buildMillis;
+    }
+}
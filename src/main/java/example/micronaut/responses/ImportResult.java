@@ -0,0 +1,32 @@
+package example.micronaut.responses;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+/**
+ * Rows written by a catalogue import, books and genres inserted or updated and links added.
+ */
+@Serdeable
+public class ImportResult {
+
+    private final long books;
+    private final long genres;
+    private final long links;
+
+    public ImportResult(long books, long genres, long links) {
+        this.books = books;
+        this.genres = genres;
+        this.links = links;
+    }
+
+    public long getBooks() {
+        return books;
+    }
+
+    public long getGenres() {
+        return genres;
+    }
+
+    public long getLinks() {
+        return links;
+    }
+}
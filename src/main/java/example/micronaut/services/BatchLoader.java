@@ -0,0 +1,152 @@
+package example.micronaut.services;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Collects single key lookups and resolves them with one multi key query. Each caller gets the value for its key, or
+ * empty when the query did not return it.
+ * <p>
+ * A lookup arriving while no query is running is sent straight away, so an idle loader adds no latency. Lookups
+ * arriving while one runs are collected, and sent when it completes, when the window has passed or when maxSize keys
+ * are pending, whichever comes first.
+ * <p>
+ * The queries are subscribed to by the loader, not by the callers, so they do not see a caller's Reactor context and
+ * with it any transaction or session the caller holds. Use it for request level reads only, never from inside a
+ * transaction.
+ *
+ * @param <K> the key
+ * @param <V> the loaded value
+ */
+public class BatchLoader<K, V> {
+
+    private final String name;
+    private final Function<Set<K>, Flux<V>> loader;
+    private final Function<V, K> keyOf;
+    private final Duration window;
+    private final int maxSize;
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder keys = new LongAdder();
+
+    private List<Request<K, V>> pending = new ArrayList<>();
+    private int running;
+
+    public BatchLoader(String name, Function<Set<K>, Flux<V>> loader, Function<V, K> keyOf, Duration window, int maxSize) {
+        this.name = name;
+        this.loader = loader;
+        this.keyOf = keyOf;
+        this.window = window;
+        this.maxSize = maxSize;
+    }
+
+    public Mono<V> load(K key) {
+        if (maxSize <= 1 || window.isZero()) {
+            return loader.apply(Set.of(key)).next();
+        }
+        return Mono.defer(() -> {
+            Request<K, V> request = new Request<>(key);
+            List<Request<K, V>> batch = null;
+            boolean first = false;
+            synchronized (this) {
+                pending.add(request);
+                if (running == 0 || pending.size() >= maxSize) {
+                    batch = take();
+                } else {
+                    first = pending.size() == 1;
+                }
+            }
+            if (batch != null) {
+                dispatch(batch);
+            } else if (first) {
+                Schedulers.parallel().schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return request.result.asMono();
+        });
+    }
+
+    private void flush() {
+        List<Request<K, V>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = take();
+        }
+        dispatch(batch);
+    }
+
+    // the lookups that queued up behind the query go out as soon as it is done
+    private void completed() {
+        synchronized (this) {
+            running--;
+        }
+        flush();
+    }
+
+    // callers hold the lock
+    private List<Request<K, V>> take() {
+        List<Request<K, V>> batch = pending;
+        pending = new ArrayList<>();
+        running++;
+        return batch;
+    }
+
+    private void dispatch(List<Request<K, V>> batch) {
+        Set<K> ids = new HashSet<>();
+        batch.forEach(request -> ids.add(request.key));
+        batches.increment();
+        keys.add(ids.size());
+        loader.apply(ids)
+                .collectMap(keyOf)
+                .doFinally(signal -> completed())
+                .subscribe(
+                        values -> batch.forEach(request -> {
+                            V value = values.get(request.key);
+                            if (value == null) {
+                                request.result.tryEmitEmpty();
+                            } else {
+                                request.result.tryEmitValue(value);
+                            }
+                        }),
+                        e -> batch.forEach(request -> request.result.tryEmitError(e)));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of multi key queries run
+     */
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    /**
+     * @return the number of distinct keys resolved by those queries
+     */
+    public long getKeys() {
+        return keys.sum();
+    }
+
+    private static final class Request<K, V> {
+
+        private final K key;
+        private final Sinks.One<V> result = Sinks.one();
+
+        private Request(K key) {
+            this.key = key;
+        }
+    }
+}
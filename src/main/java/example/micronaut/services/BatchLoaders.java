@@ -0,0 +1,47 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * The {@link BatchLoader}s behind the single book and genre lookups, a window of 0 or a max-size of 1 turns batching off.
+ * They read from the replica when there is one.
+ */
+@Factory
+public class BatchLoaders {
+
+    private final Duration window;
+    private final int maxSize;
+
+    public BatchLoaders(@Value("${batch-loader.window:2ms}") Duration window,
+                        @Value("${batch-loader.max-size:100}") int maxSize) {
+        this.window = window;
+        this.maxSize = maxSize;
+    }
+
+    @Singleton
+    @Named("book")
+    BatchLoader<UUID, Book> book(ReadRouting readRouting,
+                                 BookViewRepository bookViewRepository,
+                                 BookViewTransformer bookViewTransformer,
+                                 BookReadModelConfiguration readModel) {
+        return new BatchLoader<>("book",
+                ids -> readModel.isShow()
+                        ? bookViewRepository.findByIdIn(ids).map(bookViewTransformer::toBook)
+                        : readRouting.sharedBooks().findByIdIn(ids),
+                Book::getId, window, maxSize);
+    }
+
+    @Singleton
+    @Named("genre")
+    BatchLoader<UUID, Genre> genre(ReadRouting readRouting) {
+        return new BatchLoader<>("genre", readRouting.sharedGenres()::findAllByIdIn, Genre::getId, window, maxSize);
+    }
+}
@@ -0,0 +1,177 @@
+package example.micronaut.services;
+
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node local LRU cache of encoded books keyed by id, bounded by entry count, total bytes and age.
+ * <p>
+ * Every invalidation bumps an epoch. A load takes the epoch before reading the database and its result is only
+ * cached if no invalidation happened meanwhile, so a load racing a write cannot put back what the write evicted.
+ */
+@Singleton
+public class BookCache {
+
+    private final BookCacheConfiguration configuration;
+    private final long ttlNanos;
+    private final LinkedHashMap<UUID, Entry> books = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weight;
+    private long epoch;
+
+    public BookCache(BookCacheConfiguration configuration) {
+        this.configuration = configuration;
+        this.ttlNanos = configuration.getTtl().toNanos();
+    }
+
+    public boolean isEnabled() {
+        return configuration.isEnabled();
+    }
+
+    @Nullable
+    public CachedBook get(UUID id) {
+        if (!isEnabled()) {
+            return null;
+        }
+        synchronized (books) {
+            Entry entry = books.get(id);
+            if (entry != null && System.nanoTime() - entry.loadedAt < ttlNanos) {
+                hits.increment();
+                return entry.book;
+            }
+            if (entry != null) {
+                remove(id);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * @return the epoch to hand to {@link #put} once the book has been loaded
+     */
+    public long epoch() {
+        synchronized (books) {
+            return epoch;
+        }
+    }
+
+    public void put(UUID id, CachedBook book, long loadEpoch) {
+        if (!isEnabled() || book.getJson().length > configuration.getMaxWeight()) {
+            return;
+        }
+        synchronized (books) {
+            if (loadEpoch != epoch) {
+                return;
+            }
+            remove(id);
+            books.put(id, new Entry(book, System.nanoTime()));
+            weight += book.getJson().length;
+            Iterator<Map.Entry<UUID, Entry>> eldest = books.entrySet().iterator();
+            while (books.size() > configuration.getMaxSize() || weight > configuration.getMaxWeight()) {
+                weight -= eldest.next().getValue().book.getJson().length;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public void evict(UUID id) {
+        synchronized (books) {
+            epoch++;
+            remove(id);
+        }
+    }
+
+    public void evictAll(Collection<UUID> ids) {
+        synchronized (books) {
+            epoch++;
+            ids.forEach(this::remove);
+        }
+    }
+
+    /**
+     * Drops every entry, for writes too broad to evict book by book such as catalogue imports.
+     */
+    public void clear() {
+        synchronized (books) {
+            epoch++;
+            books.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Evicts every book carrying one of the genres, a scan of the cache, for genre renames and deletes.
+     */
+    public void evictGenres(Collection<UUID> genreIds) {
+        synchronized (books) {
+            epoch++;
+            Iterator<Entry> entries = books.values().iterator();
+            while (entries.hasNext()) {
+                Entry entry = entries.next();
+                if (genreIds.stream().anyMatch(entry.book.getGenreIds()::contains)) {
+                    weight -= entry.book.getJson().length;
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    public int getMaxSize() {
+        return configuration.getMaxSize();
+    }
+
+    public int size() {
+        synchronized (books) {
+            return books.size();
+        }
+    }
+
+    public long weight() {
+        synchronized (books) {
+            return weight;
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // callers hold the lock
+    private void remove(UUID id) {
+        Entry removed = books.remove(id);
+        if (removed != null) {
+            weight -= removed.book.getJson().length;
+        }
+    }
+
+    private static final class Entry {
+
+        private final CachedBook book;
+        private final long loadedAt;
+
+        private Entry(CachedBook book, long loadedAt) {
+            this.book = book;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * Bounds of the {@link BookCache}, off unless books.cache.enabled is set.
+ */
+@ConfigurationProperties("books.cache")
+public class BookCacheConfiguration {
+
+    private boolean enabled;
+
+    @Min(1)
+    private int maxSize = 10000;
+
+    @Min(1)
+    private long maxWeight = 64L * 1024 * 1024;
+
+    @NotNull
+    private Duration ttl = Duration.ofMinutes(10);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return the most books kept
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the most bytes of encoded JSON kept
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @return how long an entry is served after it was loaded, bounding staleness from writes on other nodes
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+}
@@ -0,0 +1,30 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Book;
+import io.micronaut.core.annotation.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A keyset page of books ordered by id, next is the id to continue after or null on the last page.
+ */
+public class BookPage {
+
+    private final List<Book> books;
+    private final UUID next;
+
+    public BookPage(List<Book> books, @Nullable UUID next) {
+        this.books = books;
+        this.next = next;
+    }
+
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    @Nullable
+    public UUID getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,36 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+/**
+ * Chooses, per endpoint, whether books are read from the book_view read model or from the book and genre tables.
+ * The read model is maintained either way so it can be switched on without a rebuild.
+ */
+@ConfigurationProperties("books.read-model")
+public class BookReadModelConfiguration {
+
+    private boolean show;
+    private boolean list;
+
+    /**
+     * @return whether GET /books/{id} reads from the read model
+     */
+    public boolean isShow() {
+        return show;
+    }
+
+    public void setShow(boolean show) {
+        this.show = show;
+    }
+
+    /**
+     * @return whether /books/list, /books/stream and /genres/{id}/books read from the read model
+     */
+    public boolean isList() {
+        return list;
+    }
+
+    public void setList(boolean list) {
+        this.list = list;
+    }
+}
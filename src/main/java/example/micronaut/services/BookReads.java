@@ -0,0 +1,57 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Book;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.jpa.annotation.EntityGraph;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * The book queries that only read, implemented against the primary by {@link BookRepository} and against the
+ * replica by {@link BookReplicaRepository}. {@link ReadRouting} picks one per request.
+ */
+public interface BookReads {
+
+    @EntityGraph( attributePaths = {"genres"})
+    @NonNull
+    Mono<Book> findById(@NonNull UUID id);
+
+    /**
+     * Keyset scan over the primary key, only ids are read so the page size is not multiplied by the genre fan-out.
+     */
+    @Query(value = "select b.id from book b where b.id > :after order by b.id limit :limit", nativeQuery = true)
+    Flux<UUID> findIdsAfter(@NonNull UUID after, int limit);
+
+    /**
+     * Keyset scan of one genre's books, served by the (genre_id, book_id) index.
+     */
+    @Query(value = "select bg.book_id from book_genre bg where bg.genre_id = :genreId and bg.book_id > :after " +
+            "order by bg.book_id limit :limit", nativeQuery = true)
+    Flux<UUID> findIdsByGenreAfter(@NonNull UUID genreId, @NonNull UUID after, int limit);
+
+    /**
+     * Books whose name contains the pattern or is similar to the query, best match first. Both conditions are
+     * served by the pg_trgm index on book.name.
+     *
+     * @param pattern the query as an ilike pattern, with its own wildcards escaped
+     */
+    @Query(value = "select b.id from book b where b.name ilike :pattern or b.name % :q " +
+            "order by similarity(b.name, :q) desc, b.id limit :limit", nativeQuery = true)
+    Flux<UUID> searchIds(@NonNull String q, @NonNull String pattern, int limit);
+
+    @EntityGraph( attributePaths = {"genres"})
+    Flux<Book> findByIdIn(@NonNull Collection<UUID> ids);
+
+    /**
+     * Everything a book's representation depends on, its version and the id and version of each genre, without
+     * loading the genre graph. ETags.book computes the same string from a loaded book.
+     */
+    @Query(value = "select b.version || ':' || coalesce((select string_agg(cast(g.id as text) || '.' || g.version, ',' order by g.id) " +
+            "from book_genre bg join genre g on g.id = bg.genre_id where bg.book_id = b.id), '') " +
+            "from book b where b.id = :id", nativeQuery = true)
+    Mono<String> findVersionTagById(@NonNull UUID id);
+}
@@ -0,0 +1,18 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Book;
+import example.micronaut.metrics.Instrumented;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.data.annotation.Repository;
+import io.micronaut.data.repository.GenericRepository;
+
+import java.util.UUID;
+
+/**
+ * {@link BookReads} against the jpa.replica session factory, only there when replica.enabled is set.
+ */
+@Repository("replica")
+@Requires(property = "replica.enabled", value = "true")
+@Instrumented(value = "db.repository", component = "BookReplicaRepository")
+public interface BookReplicaRepository extends GenericRepository<Book, UUID>, BookReads {
+}
@@ -1,8 +1,10 @@
 package example.micronaut.services;
 
 import example.micronaut.domain.Book;
-import example.micronaut.domain.Genre;
+import example.micronaut.metrics.Instrumented;
 import io.micronaut.core.annotation.NonNull;
+import io.micronaut.data.annotation.Id;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.annotation.Repository;
 import io.micronaut.data.jpa.annotation.EntityGraph;
 import io.micronaut.data.repository.reactive.ReactorCrudRepository;
@@ -10,12 +12,16 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.transaction.Transactional;
+import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 @Repository
-public interface BookRepository extends ReactorCrudRepository<Book, UUID> {
+@Instrumented(value = "db.repository", component = "BookRepository")
+public interface BookRepository extends ReactorCrudRepository<Book, UUID>, BookReads {
 
     @EntityGraph( attributePaths = {"genres"})
     @NonNull
@@ -27,13 +33,107 @@ public interface BookRepository extends ReactorCrudRepository<Book, UUID> {
     @NonNull
     Flux<Book> findAll();
 
+    /**
+     * Persists the books in a single transaction so a failure leaves none of them behind, inserts are batched
+     * according to hibernate.jdbc.batch_size.
+     */
     @Transactional
-    @EntityGraph( attributePaths = {"genres"})
-    default Mono<Book> updateGenres(UUID id, Set<Genre> genres) {
-        return findById(id).map( book -> {
-            book.setGenres(genres);
-            return book;
-        });
+    default Flux<Book> saveBatch(@NonNull List<Book> books) {
+        return saveAll(books);
+    }
+
+    /**
+     * Keyset scan of every link in (genre_id, book_id) order, served by the (genre_id, book_id) index. Each row is
+     * the genre id and the book id separated by a space.
+     */
+    @Query(value = "select cast(bg.genre_id as text) || ' ' || cast(bg.book_id as text) from book_genre bg " +
+            "where (bg.genre_id, bg.book_id) > (:genreId, :bookId) order by bg.genre_id, bg.book_id limit :limit",
+            nativeQuery = true)
+    Flux<String> findLinksAfter(@NonNull UUID genreId, @NonNull UUID bookId, int limit);
+
+    @Query("update Book b set b.name = :name, b.version = b.version + 1 where b.id = :id")
+    Mono<Long> update(@NonNull @NotNull @Id UUID id, @NonNull @NotBlank String name);
+
+    /**
+     * Renames the book if it is still at the given version and carries the name over to its read model row, in one
+     * statement and without reading the book first. The existence check only runs when the update matched nothing.
+     *
+     * @return 1 when renamed, 0 when the book is at another version, -1 when there is no such book
+     */
+    @Query(value = "with renamed as (update book set name = :name, version = version + 1 " +
+            "where id = :id and version = :version returning id, version), " +
+            "renamed_view as (update book_view v set name = :name, version = r.version from renamed r where v.id = r.id) " +
+            "select case when exists (select 1 from renamed) then 1 " +
+            "when exists (select 1 from book where id = :id) then 0 else -1 end", nativeQuery = true)
+    Mono<Integer> rename(@NonNull UUID id, @NonNull String name, long version);
+
+    @Query(value = "update book set version = version + 1 where id = :id", nativeQuery = true)
+    Mono<Long> incrementVersion(@NonNull UUID id);
+
+    // The link statements below adjust genre_stats in the same statement, from the rows the delete or insert
+    // returned. Counting the links in a statement of their own would race a concurrent write to the same book, both
+    // would count the same links before either changed them. The counts are applied in genre order so concurrent
+    // writes lock the genre_stats rows in the same order.
+
+    String COUNT_REMOVED = "counted as (insert into genre_stats (genre_id, book_count) " +
+            "select genre_id, -count(*) from removed group by genre_id order by genre_id " +
+            "on conflict (genre_id) do update set book_count = genre_stats.book_count + excluded.book_count) ";
+
+    String COUNT_ADDED = "counted as (insert into genre_stats (genre_id, book_count) " +
+            "select genre_id, count(*) from added group by genre_id order by genre_id " +
+            "on conflict (genre_id) do update set book_count = genre_stats.book_count + excluded.book_count) ";
+
+    /**
+     * @return the number of links removed
+     */
+    @Query(value = "with removed as (delete from book_genre where book_id = :id returning genre_id), " +
+            COUNT_REMOVED + "select count(*) from removed", nativeQuery = true)
+    Mono<Long> unlinkGenres(@NonNull UUID id);
+
+    /**
+     * @return the number of links removed
+     */
+    @Query(value = "with removed as (delete from book_genre where book_id = :id and genre_id not in (:genres) returning genre_id), " +
+            COUNT_REMOVED + "select count(*) from removed", nativeQuery = true)
+    Mono<Long> unlinkGenresNotIn(@NonNull UUID id, @NonNull Collection<UUID> genres);
+
+    /**
+     * Links the book to every existing genre it is not linked to yet, unknown book or genre ids insert nothing.
+     *
+     * @return the number of links added
+     */
+    @Query(value = "with added as (insert into book_genre (book_id, genre_id) " +
+            "select b.id, g.id from book b join genre g on g.id in (:genres) " +
+            "where b.id = :id and not exists (select 1 from book_genre bg where bg.book_id = b.id and bg.genre_id = g.id) " +
+            "on conflict do nothing returning genre_id), " +
+            COUNT_ADDED + "select count(*) from added", nativeQuery = true)
+    Mono<Long> linkMissingGenres(@NonNull UUID id, @NonNull Collection<UUID> genres);
+
+    // set based statements for bulk deletes, they do not rely on the foreign keys to remove the join rows
+
+    /**
+     * @return the number of links removed
+     */
+    @Query(value = "with removed as (delete from book_genre where book_id in (:ids) returning genre_id), " +
+            COUNT_REMOVED + "select count(*) from removed", nativeQuery = true)
+    Mono<Long> unlinkBooks(@NonNull Collection<UUID> ids);
+
+    @Query(value = "delete from book where id in (:ids)", nativeQuery = true)
+    Mono<Long> deleteAllByIdIn(@NonNull Collection<UUID> ids);
+
+    /**
+     * Makes the book's genre links match the given ids with at most one delete and one insert, neither the book
+     * nor the genres are loaded. The book's version is bumped and the genre counts adjusted when the links change.
+     *
+     * @return the number of join rows removed plus added
+     */
+    @Transactional
+    default Mono<Long> replaceGenres(UUID id, Set<UUID> genres) {
+        Mono<Long> changed = genres.isEmpty()
+                ? unlinkGenres(id)
+                : unlinkGenresNotIn(id, genres)
+                        .flatMap(removed -> linkMissingGenres(id, genres).map(added -> removed + added));
+        return changed.flatMap(count -> count > 0 ? incrementVersion(id).thenReturn(count) : Mono.just(count));
     }
 
 }
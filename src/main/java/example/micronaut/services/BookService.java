@@ -1,53 +1,475 @@
 package example.micronaut.services;
 
 import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.BookDeleteCommand;
 import example.micronaut.commands.BookUpdateCommand;
 import example.micronaut.domain.Book;
+import example.micronaut.domain.BookView;
+import example.micronaut.domain.Genre;
+import example.micronaut.metrics.Instrumented;
+import example.micronaut.responses.BookBatchResult;
+import example.micronaut.responses.BulkDeleteResult;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import io.vertx.pgclient.PgException;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import javax.transaction.Transactional;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Every operation runs its statements in one reactive session. Writes are {@code @Transactional}, so the session
+ * holds one transaction and one pooled connection throughout. Reads of more than one statement share a session
+ * through {@link #inSession} without a transaction, to avoid the BEGIN and COMMIT round trips. Reads go to the
+ * session factory {@link ReadRouting} picks for the request.
+ */
 @Singleton
+@Instrumented(value = "service", operation = true)
 public class BookService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(BookService.class);
+
+    // postgres orders uuids bytewise so the nil uuid sorts before every generated id
+    private static final UUID START = new UUID(0L, 0L);
+
+    private final ReadRouting readRouting;
     private final BookRepository bookRepository;
     private final BookTransformer bookTransformer;
-    private final GenreRepository genreRepository;
+    private final BookViewRepository bookViewRepository;
+    private final BookViewTransformer bookViewTransformer;
+    private final BookReadModelConfiguration readModel;
+    private final GenreService genreService;
+    private final GenreStatsRepository genreStatsRepository;
+    private final BookCache bookCache;
+    private final GenreIndex genreIndex;
+    private final SingleFlight<UUID, Book> bookFlight;
+    private final SingleFlight<UUID, CachedBook> cachedBookFlight;
+    private final SingleFlight<UUID, String> versionFlight;
+    private final BatchLoader<UUID, Book> bookLoader;
+    private final int batchChunkSize;
+    private final Duration filterWait;
 
-    public BookService(BookRepository bookRepository, BookTransformer bookTransformer, GenreRepository genreRepository) {
+    public BookService(ReadRouting readRouting,
+                       BookRepository bookRepository,
+                       BookTransformer bookTransformer,
+                       BookViewRepository bookViewRepository,
+                       BookViewTransformer bookViewTransformer,
+                       BookReadModelConfiguration readModel,
+                       GenreService genreService,
+                       GenreStatsRepository genreStatsRepository,
+                       BookCache bookCache,
+                       GenreIndex genreIndex,
+                       @Named("book") SingleFlight<UUID, Book> bookFlight,
+                       @Named("book-cached") SingleFlight<UUID, CachedBook> cachedBookFlight,
+                       @Named("book-version") SingleFlight<UUID, String> versionFlight,
+                       @Named("book") BatchLoader<UUID, Book> bookLoader,
+                       @Value("${books.batch.chunk-size:500}") int batchChunkSize,
+                       @Value("${books.filter-index.wait:5s}") Duration filterWait) {
+        this.readRouting = readRouting;
         this.bookRepository = bookRepository;
         this.bookTransformer = bookTransformer;
-        this.genreRepository = genreRepository;
+        this.bookViewRepository = bookViewRepository;
+        this.bookViewTransformer = bookViewTransformer;
+        this.readModel = readModel;
+        this.genreService = genreService;
+        this.genreStatsRepository = genreStatsRepository;
+        this.bookCache = bookCache;
+        this.genreIndex = genreIndex;
+        this.bookFlight = bookFlight;
+        this.cachedBookFlight = cachedBookFlight;
+        this.versionFlight = versionFlight;
+        this.bookLoader = bookLoader;
+        this.batchChunkSize = batchChunkSize;
+        this.filterWait = filterWait;
     }
 
+    /**
+     * Concurrent lookups of the same book share one query, lookups of different books arriving together are
+     * batched into one.
+     */
     public Mono<Book> findById(UUID id) {
-        return bookRepository
-                .findById(id);
+        if (readRouting.bypassShared()) {
+            return bookRepository.findById(id);
+        }
+        return bookFlight.load(id, bookLoader::load);
+    }
+
+    /**
+     * A book encoded for the book cache and added to it, one encoding per load that every caller joining it
+     * shares. The cache epoch is taken inside the shared load before it reads, so a caller arriving after a write's
+     * eviction cannot cache what a load started before that write read. Books read from the replica are not cached.
+     */
+    public Mono<CachedBook> findCachedById(UUID id, Function<Book, CachedBook> encode) {
+        return cachedBookFlight.load(id, key -> {
+            long epoch = bookCache.epoch();
+            return bookLoader.load(key)
+                    .map(encode)
+                    .doOnNext(encoded -> {
+                        if (!readRouting.hasReplica()) {
+                            bookCache.put(key, encoded, epoch);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * The books with the given ids in the order asked for, ids without a book are skipped.
+     */
+    public Mono<List<Book>> findAllByIdInOrder(List<UUID> ids) {
+        return findAllInOrder(ids.stream().distinct().collect(Collectors.toList()));
+    }
+
+    public Mono<String> findVersionTagById(UUID id) {
+        if (readRouting.bypassShared()) {
+            return bookRepository.findVersionTagById(id);
+        }
+        return versionFlight.load(id, readRouting.sharedBooks()::findVersionTagById);
+    }
+
+
+    public Mono<BookPage> list(@Nullable UUID after, int limit) {
+        return inSession(page(readRouting.books().findIdsAfter(after == null ? START : after, limit), limit));
+    }
+
+    public Mono<BookPage> listByGenre(UUID genreId, @Nullable UUID after, int limit) {
+        return inSession(page(readRouting.books().findIdsByGenreAfter(genreId, after == null ? START : after, limit), limit));
+    }
+
+    /**
+     * Books matching the query ranked by similarity, the ids come from the trigram index and the books with their
+     * genres from one more query. The ranking needs every id before the books are read, so the result comes as one
+     * list rather than a stream.
+     */
+    public Mono<List<Book>> search(String q, int limit) {
+        String pattern = "%" + q.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return inSession(readRouting.books().searchIds(q, pattern, limit)
+                .collectList()
+                .flatMap(this::findAllInOrder));
+    }
+
+    /**
+     * Books carrying all of {@code all}, at least one of {@code any} and none of {@code none}, the ids come from the
+     * {@link GenreIndex} and the books from one query. Waits at most books.filter-index.wait for the index to be built
+     * and fails with a TimeoutException after that.
+     */
+    public Mono<BookPage> filter(Set<UUID> all, Set<UUID> any, Set<UUID> none, @Nullable UUID after, int limit) {
+        return genreIndex.whenReady()
+                .timeout(filterWait)
+                .then(Mono.fromCallable(() -> genreIndex.filter(all, any, none, after, limit)))
+                .flatMap(ids -> findAllInOrder(ids)
+                        .map(books -> new BookPage(books, ids.size() == limit ? ids.get(ids.size() - 1) : null)));
+    }
+
+    /**
+     * Streams every book in id order, one page of chunkSize is fetched at a time and only when downstream asks for more.
+     */
+    public Flux<Book> stream(int chunkSize) {
+        return list(null, chunkSize)
+                .expand(page -> page.getNext() == null ? Mono.empty() : list(page.getNext(), chunkSize))
+                .concatMapIterable(BookPage::getBooks, 1);
+    }
+
+    /**
+     * Runs the repository calls of the pipeline in one session, and so on one connection, instead of a session each.
+     */
+    private <T> Mono<T> inSession(Mono<T> work) {
+        return readRouting.operations().withSession(session -> work);
+    }
+
+    private Mono<BookPage> page(Flux<UUID> pageIds, int limit) {
+        return pageIds.collectList()
+                .flatMap(ids -> findAllInOrder(ids)
+                        .map(books -> new BookPage(books, ids.size() == limit ? ids.get(ids.size() - 1) : null)));
     }
 
-    public Flux<Book> list() {
-        return bookRepository.findAll();
+    private Mono<List<Book>> findAllInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        Flux<Book> books = readModel.isList()
+                ? bookViewRepository.findByIdIn(ids).map(bookViewTransformer::toBook)
+                : readRouting.books().findByIdIn(ids);
+        return books
+                .collectMap(Book::getId)
+                .map(books -> ids.stream().map(books::get).filter(Objects::nonNull).collect(Collectors.toList()));
     }
 
     public Mono<Book> save( BookCreateCommand bookCreateCommand ) {
-        return bookRepository.save(bookTransformer.fromCreateCommand(bookCreateCommand));
+        return saveBatch(List.of(bookCreateCommand)).next();
+    }
+
+    /**
+     * Saves the commands in chunks of books.batch.chunk-size, one transaction per chunk. When a chunk fails its
+     * commands are retried one by one so every result carries either the new id or that command's own error.
+     */
+    public Flux<BookBatchResult> saveAll(Flux<BookCreateCommand> commands) {
+        return commands.index()
+                .buffer(batchChunkSize)
+                .concatMap(this::saveChunk);
+    }
+
+    private Flux<BookBatchResult> saveChunk(List<Tuple2<Long, BookCreateCommand>> chunk) {
+        List<BookCreateCommand> commands = chunk.stream().map(Tuple2::getT2).collect(Collectors.toList());
+        return saveBatch(commands)
+                .index()
+                .map(saved -> BookBatchResult.created(chunk.get(saved.getT1().intValue()).getT1(), saved.getT2().getId()))
+                .collectList()
+                .flatMapMany(Flux::fromIterable)
+                .onErrorResume(e -> Flux.fromIterable(chunk).concatMap(this::saveOne));
+    }
+
+    private Mono<BookBatchResult> saveOne(Tuple2<Long, BookCreateCommand> item) {
+        return save(item.getT2())
+                .map(book -> BookBatchResult.created(item.getT1(), book.getId()))
+                .onErrorResume(e -> {
+                    LOG.debug("Unable to save book {} of the batch", item.getT1(), e);
+                    return Mono.just(BookBatchResult.failed(item.getT1(), batchError(e)));
+                });
+    }
+
+    /**
+     * A stable message for the SQL state behind the failure, the driver and Hibernate messages carry statements and
+     * values and stay in the log.
+     */
+    private static String batchError(Throwable e) {
+        String state = sqlState(e);
+        if (state == null) {
+            return "The book could not be saved";
+        }
+        switch (state) {
+            case "23503":
+                return "Unknown genre";
+            case "23505":
+                return "Duplicate value";
+            case "23502":
+                return "A required value is missing";
+            default:
+                return state.startsWith("22") ? "Invalid value" : "The book could not be saved";
+        }
+    }
+
+    @Nullable
+    private static String sqlState(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof PgException) {
+                return ((PgException) cause).getCode();
+            }
+            if (cause instanceof SQLException) {
+                return ((SQLException) cause).getSQLState();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves the books, their read model rows and the genre counts in one transaction, the genre names for the read
+     * model come from the genre cache. The books reach the genre index once the transaction committed, so a filter
+     * never returns a book that is not there yet or was rolled back.
+     */
+    public Flux<Book> saveBatch(List<BookCreateCommand> commands) {
+        return saveBatchInTransaction(commands)
+                .collectList()
+                .doOnNext(saved -> saved.forEach(book -> genreIndex.put(book.getId(), genreIds(book))))
+                .flatMapIterable(saved -> saved);
     }
 
     @Transactional
+    @Instrumented("service")
+    protected Flux<Book> saveBatchInTransaction(List<BookCreateCommand> commands) {
+        List<Book> books = commands.stream()
+                .map(bookTransformer::fromCreateCommand)
+                .collect(Collectors.toList());
+        Map<UUID, Long> genreCounts = commands.stream()
+                .flatMap(command -> command.getGenres().stream())
+                .collect(Collectors.groupingBy(genreId -> genreId, Collectors.counting()));
+        return bookRepository.saveBatch(books)
+                .collectList()
+                .flatMapMany(saved -> genreService.findAllById(genreCounts.keySet())
+                        .collectMap(Genre::getId)
+                        .flatMapMany(genres -> bookViewRepository.saveAll(views(saved, genres)))
+                        .thenMany(Flux.fromIterable(genreCounts.entrySet()))
+                        .concatMap(count -> genreStatsRepository.add(count.getKey(), count.getValue()))
+                        .thenMany(Flux.fromIterable(saved)));
+    }
+
+    /**
+     * Like the other writes that change existing books, the update runs in a transaction of its own and the book cache
+     * and genre index are updated once it committed. Evicting inside it would let a concurrent read cache the old
+     * book again, until the cache TTL, and the index would keep changes that were rolled back.
+     */
     public Mono<Book> update( BookUpdateCommand bookUpdateCommand ) {
-        return bookRepository.update(bookTransformer.fromUpdateCommandJustId(bookUpdateCommand));
+        return updateInTransaction(bookUpdateCommand)
+                .doOnSuccess(book -> updated(bookUpdateCommand.getId(), book));
+    }
+
+    @Transactional
+    @Instrumented("service")
+    protected Mono<Book> updateInTransaction( BookUpdateCommand bookUpdateCommand ) {
+        UUID id = bookUpdateCommand.getId();
+        return bookRepository.update(id, bookUpdateCommand.getName())
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> bookRepository.replaceGenres(id, bookUpdateCommand.getGenres()))
+                .flatMap(changed -> bookRepository.findById(id))
+                .flatMap(this::refreshView);
+    }
+
+    /**
+     * Renames a book at the expected version in one statement, and so one round trip, with neither the book nor its
+     * genres read first. No transaction is needed since the statement is atomic on its own.
+     */
+    public Mono<RenameOutcome> rename(UUID id, String name, long version) {
+        return bookRepository.rename(id, name, version)
+                .map(RenameOutcome::of)
+                // book.name is unique
+                .onErrorResume(e -> "23505".equals(sqlState(e)), e -> Mono.just(RenameOutcome.NAME_TAKEN))
+                .doOnNext(outcome -> {
+                    if (outcome == RenameOutcome.RENAMED) {
+                        bookCache.evict(id);
+                    }
+                });
     }
 
     public Mono<Book> updateGenres( BookUpdateCommand bookUpdateCommand ) {
-        return genreRepository.findAllByIdIn(bookUpdateCommand.getGenres()).collectList()
-                .flatMap(genres -> bookRepository.updateGenres(bookUpdateCommand.getId(), Set.copyOf(genres)));
+        return updateGenresInTransaction(bookUpdateCommand)
+                .doOnSuccess(book -> updated(bookUpdateCommand.getId(), book));
+    }
+
+    @Transactional
+    @Instrumented("service")
+    protected Mono<Book> updateGenresInTransaction( BookUpdateCommand bookUpdateCommand ) {
+        UUID id = bookUpdateCommand.getId();
+        return bookRepository.replaceGenres(id, bookUpdateCommand.getGenres())
+                .flatMap(changed -> bookRepository.findById(id))
+                .flatMap(this::refreshView);
     }
 
     public Mono<Long> deleteById(UUID id) {
-        return bookRepository.deleteById(id);
+        return deleteByIdInTransaction(id)
+                .doOnSuccess(deleted -> {
+                    bookCache.evict(id);
+                    genreIndex.removeBooks(Set.of(id));
+                });
+    }
+
+    @Transactional
+    @Instrumented("service")
+    protected Mono<Long> deleteByIdInTransaction(UUID id) {
+        return bookViewRepository.deleteById(id)
+                .then(bookRepository.unlinkGenres(id))
+                .then(bookRepository.deleteById(id));
+    }
+
+    /**
+     * Deletes the selected books, their links, read model rows and genre counts in one transaction with a few set
+     * based statements per chunk of books.batch.chunk-size ids.
+     */
+    public Mono<BulkDeleteResult> deleteAll(BookDeleteCommand command) {
+        return deleteAllInTransaction(command)
+                .doOnSuccess(result -> {
+                    if (command.getGenreId() != null) {
+                        bookCache.evictGenres(Set.of(command.getGenreId()));
+                        genreIndex.removeBooksOfGenre(command.getGenreId());
+                    } else {
+                        bookCache.evictAll(command.getIds());
+                        genreIndex.removeBooks(command.getIds());
+                    }
+                });
+    }
+
+    @Transactional
+    @Instrumented("service")
+    protected Mono<BulkDeleteResult> deleteAllInTransaction(BookDeleteCommand command) {
+        if (command.getGenreId() != null) {
+            return deleteByGenre(command.getGenreId(), new BulkDeleteResult(0, 0, 0));
+        }
+        return Flux.fromIterable(command.getIds())
+                .buffer(batchChunkSize)
+                .concatMap(this::deleteAllById)
+                .reduce(new BulkDeleteResult(0, 0, 0), BulkDeleteResult::plus);
+    }
+
+    // each round deletes the genre's first chunk of books, so the next round starts from the beginning again
+    private Mono<BulkDeleteResult> deleteByGenre(UUID genreId, BulkDeleteResult deleted) {
+        return bookRepository.findIdsByGenreAfter(genreId, START, batchChunkSize)
+                .collectList()
+                .flatMap(ids -> deleteAllById(ids)
+                        .flatMap(result -> ids.size() < batchChunkSize
+                                ? Mono.just(deleted.plus(result))
+                                : deleteByGenre(genreId, deleted.plus(result))));
+    }
+
+    private Mono<BulkDeleteResult> deleteAllById(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(new BulkDeleteResult(0, 0, 0));
+        }
+        return bookViewRepository.deleteAllByIdIn(ids)
+                .then(bookRepository.unlinkBooks(ids))
+                .flatMap(links -> bookRepository.deleteAllByIdIn(ids)
+                        .map(books -> new BulkDeleteResult(books, 0, links)));
+    }
+
+    public BookCache getCache() {
+        return bookCache;
+    }
+
+    /**
+     * Whether the request being served reads its own writes from the primary, so it must not be answered from the
+     * book cache either.
+     */
+    public boolean bypassesCache() {
+        return readRouting.bypassShared();
+    }
+
+    public GenreIndex getGenreIndex() {
+        return genreIndex;
+    }
+
+    // the book is null when there was none to update
+    private void updated(UUID id, @Nullable Book book) {
+        bookCache.evict(id);
+        if (book != null) {
+            genreIndex.put(id, genreIds(book));
+        }
+    }
+
+    private Mono<Book> refreshView(Book book) {
+        Collection<Genre> genres = book.getGenres() == null ? List.of() : book.getGenres();
+        return bookViewRepository.upsert(book.getId(), book.getName(), bookViewTransformer.genresJson(genres), book.getVersion())
+                .thenReturn(book);
+    }
+
+    private static Set<UUID> genreIds(Book book) {
+        return book.getGenres() == null
+                ? Set.of()
+                : book.getGenres().stream().map(Genre::getId).collect(Collectors.toSet());
+    }
+
+    private List<BookView> views(List<Book> books, Map<UUID, Genre> genres) {
+        return books.stream().map(book -> {
+            BookView view = new BookView();
+            view.setId(book.getId());
+            view.setName(book.getName());
+            view.setVersion(book.getVersion());
+            view.setGenres(bookViewTransformer.genresJson(book.getGenres().stream()
+                    .map(genre -> genres.get(genre.getId()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList())));
+            return view;
+        }).collect(Collectors.toList());
     }
 }
@@ -0,0 +1,51 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.BookView;
+import example.micronaut.metrics.Instrumented;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.annotation.Repository;
+import io.micronaut.data.repository.reactive.ReactorCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+@Instrumented(value = "db.repository", component = "BookViewRepository")
+public interface BookViewRepository extends ReactorCrudRepository<BookView, UUID> {
+
+    // the genres of book v in the shape and id order BookViewTransformer writes, null when it has none, a complete
+    // select that further conditions on g can be appended to
+    String GENRES_OF_BOOK = "select json_agg(json_build_object('id', g.id, 'name', g.name, 'version', g.version) order by g.id) " +
+            "from book_genre bg join genre g on g.id = bg.genre_id where bg.book_id = v.id";
+
+    // the genres column of book v rebuilt from the join table
+    String GENRES_JSON = "coalesce(cast((" + GENRES_OF_BOOK + ") as text), '[]')";
+
+    Flux<BookView> findByIdIn(@NonNull Collection<UUID> ids);
+
+    @Query(value = "insert into book_view (id, name, genres, version) values (:id, :name, :genres, :version) " +
+            "on conflict (id) do update set name = excluded.name, genres = excluded.genres, version = excluded.version",
+            nativeQuery = true)
+    Mono<Long> upsert(@NonNull UUID id, @NonNull String name, @NonNull String genres, long version);
+
+    /**
+     * Picks up a renamed genre in every book carrying it.
+     */
+    @Query(value = "update book_view v set genres = " + GENRES_JSON + " " +
+            "where v.id in (select bg.book_id from book_genre bg where bg.genre_id = :genreId)", nativeQuery = true)
+    Mono<Long> refreshGenre(@NonNull UUID genreId);
+
+    /**
+     * Drops genres that are about to be deleted from every book carrying them, run before the delete while the
+     * links still exist.
+     */
+    @Query(value = "update book_view v set genres = coalesce(cast((" + GENRES_OF_BOOK + " and g.id not in (:genreIds)) as text), '[]') " +
+            "where v.id in (select bg.book_id from book_genre bg where bg.genre_id in (:genreIds))", nativeQuery = true)
+    Mono<Long> removeGenres(@NonNull Collection<UUID> genreIds);
+
+    @Query(value = "delete from book_view where id in (:ids)", nativeQuery = true)
+    Mono<Long> deleteAllByIdIn(@NonNull Collection<UUID> ids);
+}
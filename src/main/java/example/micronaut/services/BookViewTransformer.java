@@ -0,0 +1,56 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Book;
+import example.micronaut.domain.BookView;
+import example.micronaut.domain.Genre;
+import io.micronaut.core.type.Argument;
+import io.micronaut.json.JsonMapper;
+import jakarta.inject.Singleton;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Singleton
+public class BookViewTransformer {
+
+    private static final Argument<Set<Genre>> GENRES = Argument.setOf(Genre.class);
+
+    private final JsonMapper jsonMapper;
+
+    public BookViewTransformer(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+    }
+
+    public Book toBook(BookView bookView) {
+        Book book = new Book();
+        book.setId(bookView.getId());
+        book.setName(bookView.getName());
+        book.setVersion(bookView.getVersion());
+        try {
+            book.setGenres(jsonMapper.readValue(bookView.getGenres(), GENRES));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable genres for book " + bookView.getId(), e);
+        }
+        return book;
+    }
+
+    /**
+     * The genres as stored in book_view, ordered by id as the SQL that rebuilds the column orders them. The text form
+     * sorts like postgres' bytewise uuid order, names would depend on the database collation.
+     */
+    public String genresJson(Collection<Genre> genres) {
+        List<Genre> sorted = genres.stream()
+                .sorted(Comparator.comparing(genre -> genre.getId().toString()))
+                .collect(Collectors.toList());
+        try {
+            return jsonMapper.writeValueAsString(sorted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package example.micronaut.services;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A book as it goes over the wire, its encoded JSON and ETag, plus the genres it carries so renaming one of
+ * them can find it.
+ */
+public class CachedBook {
+
+    private final byte[] json;
+    private final String etag;
+    private final Set<UUID> genreIds;
+
+    public CachedBook(byte[] json, String etag, Set<UUID> genreIds) {
+        this.json = json;
+        this.etag = etag;
+        this.genreIds = genreIds;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public Set<UUID> getGenreIds() {
+        return genreIds;
+    }
+}
@@ -0,0 +1,63 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+
+/**
+ * The JDBC connections {@link CatalogueService} runs its COPY statements on. They are opened per export or import
+ * outside the Vert.x pool, so their number is bounded here.
+ */
+@ConfigurationProperties("catalogue")
+public class CatalogueConfiguration {
+
+    @NotBlank
+    private String url;
+
+    @NotBlank
+    private String username;
+
+    private String password;
+
+    @Min(1)
+    private int maxConnections = 2;
+
+    /**
+     * @return the database url, jdbc: is prepended when it is missing
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    /**
+     * @return how many exports and imports may hold a connection at once, more are rejected
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+}
@@ -0,0 +1,43 @@
+package example.micronaut.services;
+
+import io.micronaut.core.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Encodings of a catalogue import or export. CSV has one row per book and genre, book_id,book_name,genre_id,genre_name
+ * with a header, and empty genre columns for books without genres. NDJSON has one book per line, shaped like the
+ * book JSON of the other endpoints.
+ */
+public enum CatalogueFormat {
+
+    CSV(CatalogueFormat.TEXT_CSV),
+    NDJSON(CatalogueFormat.APPLICATION_NDJSON);
+
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final String mediaType;
+
+    CatalogueFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The format with the given name or media type, parameters such as a charset are ignored.
+     */
+    public static Optional<CatalogueFormat> of(@Nullable String name) {
+        if (name == null) {
+            return Optional.empty();
+        }
+        String value = name.split(";", 2)[0].trim();
+        return Arrays.stream(values())
+                .filter(format -> format.name().equalsIgnoreCase(value) || format.mediaType.equalsIgnoreCase(value))
+                .findFirst();
+    }
+}
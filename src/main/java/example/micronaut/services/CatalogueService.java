@@ -0,0 +1,288 @@
+package example.micronaut.services;
+
+import example.micronaut.metrics.Instrumented;
+import example.micronaut.responses.ImportResult;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.exceptions.DataAccessException;
+import jakarta.inject.Singleton;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyOut;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bulk catalogue export and import through COPY on a plain JDBC connection, Hibernate Reactive has no access to
+ * the COPY sub-protocol. Rows stream between the HTTP body and the connection with backpressure, at most a chunk
+ * or a few request buffers are held at a time. Blocking JDBC calls run on the bounded elastic scheduler.
+ * <p>
+ * Each export or import holds one connection for as long as it runs. At most catalogue.max-connections are open at
+ * once, further ones fail with a RejectedExecutionException rather than exhausting the server's connections.
+ * <p>
+ * Imports are copied into a temp table and merged into book, genre and book_genre, along with the read model
+ * and the genre counts, in one transaction. Ids are kept, books and genres that exist are renamed and the links
+ * of every imported book are replaced by the imported ones.
+ */
+@Singleton
+@Instrumented("service")
+public class CatalogueService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogueService.class);
+
+    // rows of the export are gathered into chunks of about this size before they are written out
+    private static final int CHUNK_BYTES = 64 * 1024;
+
+    // csv with control characters as quote and delimiter passes each line through untouched, unlike text format
+    private static final String RAW_LINES = "(format csv, quote e'\\x01', delimiter e'\\x02')";
+
+    private static final String EXPORT_CSV = "copy (select b.id as book_id, b.name as book_name, g.id as genre_id, g.name as genre_name " +
+            "from book b left join book_genre bg on bg.book_id = b.id left join genre g on g.id = bg.genre_id " +
+            "order by b.id, g.id) to stdout with (format csv, header)";
+
+    private static final String EXPORT_NDJSON = "copy (select json_build_object('id', b.id, 'name', b.name, 'version', b.version, " +
+            "'genres', coalesce((select json_agg(json_build_object('id', g.id, 'name', g.name, 'version', g.version) order by g.id) " +
+            "from book_genre bg join genre g on g.id = bg.genre_id where bg.book_id = b.id), cast('[]' as json))) " +
+            "from book b order by b.id) to stdout with " + RAW_LINES;
+
+    private static final String CREATE_ROWS = "create temp table import_rows " +
+            "(book_id uuid not null, book_name text not null, genre_id uuid, genre_name text) on commit drop";
+
+    private static final String CREATE_DOCS = "create temp table import_docs (doc jsonb) on commit drop";
+
+    private static final String COPY_ROWS = "copy import_rows from stdin with (format csv, header)";
+
+    private static final String COPY_DOCS = "copy import_docs from stdin with " + RAW_LINES;
+
+    private static final String UNNEST_DOCS = "insert into import_rows (book_id, book_name, genre_id, genre_name) " +
+            "select cast(d.doc ->> 'id' as uuid), d.doc ->> 'name', cast(g.genre ->> 'id' as uuid), g.genre ->> 'name' " +
+            "from import_docs d left join lateral jsonb_array_elements(coalesce(d.doc -> 'genres', cast('[]' as jsonb))) g(genre) on true " +
+            "where d.doc is not null";
+
+    private static final String MERGE_GENRES = "insert into genre (id, name, version) " +
+            "select distinct on (genre_id) genre_id, genre_name, 0 from import_rows where genre_id is not null order by genre_id " +
+            "on conflict (id) do update set name = excluded.name, version = genre.version + 1 " +
+            "where genre.name is distinct from excluded.name";
+
+    // every imported book gets a new version since its links may change below
+    private static final String MERGE_BOOKS = "insert into book (id, name, version) " +
+            "select distinct on (book_id) book_id, book_name, 0 from import_rows order by book_id " +
+            "on conflict (id) do update set name = excluded.name, version = book.version + 1";
+
+    private static final String DELETE_STALE_LINKS = "delete from book_genre bg " +
+            "where bg.book_id in (select book_id from import_rows) " +
+            "and not exists (select 1 from import_rows r where r.book_id = bg.book_id and r.genre_id = bg.genre_id)";
+
+    private static final String INSERT_LINKS = "insert into book_genre (book_id, genre_id) " +
+            "select distinct book_id, genre_id from import_rows where genre_id is not null on conflict do nothing";
+
+    private static final String UPSERT_VIEWS = "insert into book_view (id, name, genres, version) " +
+            "select v.id, v.name, " + BookViewRepository.GENRES_JSON + ", v.version " +
+            "from book v where v.id in (select book_id from import_rows) " +
+            "on conflict (id) do update set name = excluded.name, genres = excluded.genres, version = excluded.version";
+
+    // books outside the import that carry a genre the import renamed
+    private static final String REFRESH_VIEWS = "update book_view v set genres = " + BookViewRepository.GENRES_JSON + " " +
+            "where v.id in (select bg.book_id from book_genre bg where bg.genre_id in (select genre_id from import_rows)) " +
+            "and v.id not in (select book_id from import_rows)";
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Semaphore connections;
+    private final BookCache bookCache;
+    private final GenreCache genreCache;
+    @Nullable
+    private final GenreIndexLoader genreIndexLoader;
+
+    public CatalogueService(CatalogueConfiguration configuration,
+                            BookCache bookCache,
+                            GenreCache genreCache,
+                            @Nullable GenreIndexLoader genreIndexLoader) {
+        String url = configuration.getUrl();
+        this.url = url.startsWith("jdbc:") ? url : "jdbc:" + url;
+        this.username = configuration.getUsername();
+        this.password = configuration.getPassword();
+        this.connections = new Semaphore(configuration.getMaxConnections());
+        this.bookCache = bookCache;
+        this.genreCache = genreCache;
+        this.genreIndexLoader = genreIndexLoader;
+    }
+
+    /**
+     * Whether a connection is free for another export or import. An export starts streaming once the response is
+     * committed, so it is checked up front to answer with an error status rather than a truncated body.
+     */
+    public boolean hasFreeConnection() {
+        return connections.availablePermits() > 0;
+    }
+
+    /**
+     * Streams every book in id order, rows are read from the connection only as fast as the client takes them.
+     */
+    public Flux<byte[]> export(CatalogueFormat format) {
+        String sql = format == CatalogueFormat.CSV ? EXPORT_CSV : EXPORT_NDJSON;
+        return Flux.using(
+                        this::connect,
+                        connection -> Flux.generate(
+                                () -> connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql),
+                                CatalogueService::readChunk,
+                                CatalogueService::cancel),
+                        this::close)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Copies the body into a temp table as it arrives and merges it in once it is complete, nothing is kept if
+     * the body is cut short or a row is invalid.
+     */
+    public Mono<ImportResult> importCatalogue(CatalogueFormat format, Publisher<byte[]> body) {
+        return Mono.usingWhen(
+                        Mono.fromCallable(this::connectForImport),
+                        connection -> Mono.fromCallable(() -> startCopy(connection, format))
+                                .flatMap(copyIn -> Flux.from(body)
+                                        .publishOn(Schedulers.boundedElastic(), 4)
+                                        .doOnNext(chunk -> write(copyIn, chunk))
+                                        .then(Mono.fromCallable(copyIn::endCopy)))
+                                .then(Mono.fromCallable(() -> merge(connection, format))),
+                        connection -> Mono.fromRunnable(() -> close(connection)),
+                        (connection, e) -> Mono.fromRunnable(() -> close(connection)),
+                        connection -> Mono.fromRunnable(() -> close(connection)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(SQLException.class, CatalogueService::rejected)
+                .doOnSuccess(result -> invalidate());
+    }
+
+    private Connection connect() throws SQLException {
+        if (!connections.tryAcquire()) {
+            throw new RejectedExecutionException("All catalogue connections are in use");
+        }
+        try {
+            return DriverManager.getConnection(url, username, password);
+        } catch (SQLException | RuntimeException e) {
+            connections.release();
+            throw e;
+        }
+    }
+
+    private Connection connectForImport() throws SQLException {
+        Connection connection = connect();
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    private static CopyIn startCopy(Connection connection, CatalogueFormat format) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_ROWS);
+            if (format == CatalogueFormat.NDJSON) {
+                statement.execute(CREATE_DOCS);
+            }
+        }
+        return connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn(format == CatalogueFormat.CSV ? COPY_ROWS : COPY_DOCS);
+    }
+
+    private static void write(CopyIn copyIn, byte[] chunk) {
+        try {
+            copyIn.writeToCopy(chunk, 0, chunk.length);
+        } catch (SQLException e) {
+            throw rejected(e);
+        }
+    }
+
+    private static ImportResult merge(Connection connection, CatalogueFormat format) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (format == CatalogueFormat.NDJSON) {
+                statement.executeUpdate(UNNEST_DOCS);
+            }
+            long genres = statement.executeLargeUpdate(MERGE_GENRES);
+            long books = statement.executeLargeUpdate(MERGE_BOOKS);
+            statement.executeLargeUpdate(DELETE_STALE_LINKS);
+            long links = statement.executeLargeUpdate(INSERT_LINKS);
+            statement.executeLargeUpdate(UPSERT_VIEWS);
+            statement.executeLargeUpdate(REFRESH_VIEWS);
+            // links may have moved between any genres
+            statement.executeLargeUpdate(GenreStatsRepository.RECOUNT);
+            connection.commit();
+            return new ImportResult(books, genres, links);
+        }
+    }
+
+    /**
+     * Bad values and constraint violations, SQL states of class 22 and 23, are the fault of the body and come back
+     * as an {@link IllegalArgumentException}.
+     */
+    private static RuntimeException rejected(SQLException e) {
+        String state = e.getSQLState();
+        if (state != null && (state.startsWith("22") || state.startsWith("23"))) {
+            return new IllegalArgumentException("Import rejected: " + e.getMessage(), e);
+        }
+        return new DataAccessException("Unable to import the catalogue: " + e.getMessage(), e);
+    }
+
+    // the import can touch any book or genre, so the node local copies are dropped and the index rebuilt
+    private void invalidate() {
+        bookCache.clear();
+        genreCache.clear();
+        if (genreIndexLoader != null) {
+            genreIndexLoader.build().subscribe(
+                    null,
+                    e -> LOG.warn("Unable to rebuild the genre index after an import", e));
+        }
+    }
+
+    private static CopyOut readChunk(CopyOut copyOut, SynchronousSink<byte[]> sink) {
+        try {
+            if (!copyOut.isActive()) {
+                sink.complete();
+                return copyOut;
+            }
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_BYTES + 1024);
+            byte[] row;
+            while (chunk.size() < CHUNK_BYTES && (row = copyOut.readFromCopy()) != null) {
+                chunk.writeBytes(row);
+            }
+            if (chunk.size() > 0) {
+                sink.next(chunk.toByteArray());
+            } else {
+                sink.complete();
+            }
+        } catch (SQLException e) {
+            sink.error(new DataAccessException("Unable to export the catalogue: " + e.getMessage(), e));
+        }
+        return copyOut;
+    }
+
+    private static void cancel(CopyOut copyOut) {
+        if (copyOut.isActive()) {
+            try {
+                copyOut.cancelCopy();
+            } catch (SQLException e) {
+                LOG.debug("Unable to cancel the export", e);
+            }
+        }
+    }
+
+    // closing without a commit rolls back, and ends a copy still in progress
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            LOG.debug("Unable to close the copy connection", e);
+        } finally {
+            connections.release();
+        }
+    }
+}
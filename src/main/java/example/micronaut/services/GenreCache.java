@@ -0,0 +1,133 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Genre;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node local LRU cache of genres keyed by id. Entries are copied on the way in and out so callers
+ * can never mutate, or attach to a session, the cached instances.
+ * <p>
+ * Like {@link BookCache} every invalidation bumps an epoch, and a load only caches its result when no invalidation
+ * happened since it took the epoch. Entries have no TTL, so a load racing an update would otherwise keep the old
+ * name for good.
+ */
+@Singleton
+public class GenreCache {
+
+    private final int maxSize;
+    private final Map<UUID, Genre> genres;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long epoch;
+
+    public GenreCache(@Value("${genre.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.genres = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Genre> eldest) {
+                if (size() > GenreCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Nullable
+    public Genre get(UUID id) {
+        Genre genre;
+        synchronized (genres) {
+            genre = genres.get(id);
+        }
+        if (genre == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(genre);
+    }
+
+    /**
+     * @return the epoch to hand to {@link #put(Genre, long)} once the genre has been loaded
+     */
+    public long epoch() {
+        synchronized (genres) {
+            return epoch;
+        }
+    }
+
+    /**
+     * Caches a genre the caller just wrote, which nothing can have invalidated yet.
+     */
+    public void put(Genre genre) {
+        Genre copy = copy(genre);
+        synchronized (genres) {
+            genres.put(copy.getId(), copy);
+        }
+    }
+
+    public void put(Genre genre, long loadEpoch) {
+        Genre copy = copy(genre);
+        synchronized (genres) {
+            if (loadEpoch == epoch) {
+                genres.put(copy.getId(), copy);
+            }
+        }
+    }
+
+    public void putAll(Collection<Genre> genres, long loadEpoch) {
+        genres.forEach(genre -> put(genre, loadEpoch));
+    }
+
+    public void evict(UUID id) {
+        synchronized (genres) {
+            epoch++;
+            genres.remove(id);
+        }
+    }
+
+    public void clear() {
+        synchronized (genres) {
+            epoch++;
+            genres.clear();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        synchronized (genres) {
+            return genres.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static Genre copy(Genre genre) {
+        Genre copy = new Genre(genre.getId(), genre.getName());
+        copy.setVersion(genre.getVersion());
+        return copy;
+    }
+}
@@ -0,0 +1,42 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the genres into the {@link GenreCache} on startup, switched off with genre.cache.warm-on-startup=false
+ * when a context is started without a database.
+ */
+@Singleton
+@Requires(property = "genre.cache.warm-on-startup", notEquals = "false")
+public class GenreCacheWarmer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GenreCacheWarmer.class);
+
+    private final GenreRepository genreRepository;
+    private final GenreCache genreCache;
+
+    public GenreCacheWarmer(GenreRepository genreRepository, GenreCache genreCache) {
+        this.genreRepository = genreRepository;
+        this.genreCache = genreCache;
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        long epoch = genreCache.epoch();
+        genreRepository.findAll(Pageable.from(0, genreCache.getMaxSize()))
+                .map(Page::getContent)
+                .subscribe(
+                        genres -> {
+                            genreCache.putAll(genres, epoch);
+                            LOG.info("Warmed genre cache with {} genres", genres.size());
+                        },
+                        e -> LOG.warn("Unable to warm genre cache", e));
+    }
+}
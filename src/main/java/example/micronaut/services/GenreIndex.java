@@ -0,0 +1,325 @@
+package example.micronaut.services;
+
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Node local inverted index from genre id to a compressed bitmap of the books carrying it. Books are numbered with
+ * dense ordinals, in id order when the index is built and in insertion order after that, ordinals of deleted books
+ * are not reused until the next build.
+ * <p>
+ * Pages are nevertheless ordered by book id, the order postgres sorts uuids in, so a cursor stays valid on every node
+ * and across rebuilds. The ordinals of the build are walked in order from the cursor and merged with the few books
+ * added since.
+ * <p>
+ * {@link GenreIndexLoader} builds a {@link Snapshot} from the database and swaps it in, the BookService and
+ * GenreService write paths keep the live index current in between and during builds.
+ */
+@Singleton
+public class GenreIndex {
+
+    // postgres compares uuids bytewise, UUID.compareTo compares signed longs
+    static final Comparator<UUID> ID_ORDER = Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Sinks.Empty<Void> ready = Sinks.empty();
+    private Snapshot current = new Snapshot();
+    @Nullable
+    private List<Consumer<Snapshot>> journal;
+    private long buildMillis;
+
+    /**
+     * Completes once the first snapshot is in.
+     */
+    public Mono<Void> whenReady() {
+        return ready.asMono();
+    }
+
+    /**
+     * Starts a build, writes from now on are also journaled so they can be replayed onto the snapshot.
+     */
+    public Snapshot startBuild() {
+        lock.writeLock().lock();
+        try {
+            journal = new ArrayList<>();
+            return new Snapshot();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replays the writes made while the snapshot was built, they are idempotent so writes the snapshot already
+     * saw in the database do no harm, and swaps it in.
+     */
+    public void finishBuild(Snapshot snapshot, long buildMillis) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) {
+                journal.forEach(write -> write.accept(snapshot));
+                journal = null;
+            }
+            snapshot.optimize();
+            current = snapshot;
+            this.buildMillis = buildMillis;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        ready.tryEmitEmpty();
+    }
+
+    public void abortBuild() {
+        lock.writeLock().lock();
+        try {
+            journal = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the genres of a book, adding the book when it is new.
+     */
+    public void put(UUID bookId, Collection<UUID> genreIds) {
+        write(snapshot -> snapshot.put(bookId, genreIds));
+    }
+
+    public void removeBooks(Collection<UUID> bookIds) {
+        write(snapshot -> snapshot.removeBooks(bookIds));
+    }
+
+    /**
+     * Removes every book carrying the genre.
+     */
+    public void removeBooksOfGenre(UUID genreId) {
+        write(snapshot -> snapshot.removeBooksOfGenre(genreId));
+    }
+
+    public void removeGenres(Collection<UUID> genreIds) {
+        write(snapshot -> snapshot.removeGenres(genreIds));
+    }
+
+    private void write(Consumer<Snapshot> write) {
+        lock.writeLock().lock();
+        try {
+            write.accept(current);
+            if (journal != null) {
+                journal.add(write);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Books carrying all of {@code all}, at least one of {@code any} and none of {@code none}, empty sets do not
+     * filter. Ordered by id.
+     *
+     * @param after the last book of the previous page, it need not be in the index
+     */
+    public List<UUID> filter(Collection<UUID> all, Collection<UUID> any, Collection<UUID> none,
+                             @Nullable UUID after, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = current.live.clone();
+            for (UUID genreId : all) {
+                result.and(current.books(genreId));
+            }
+            if (!any.isEmpty()) {
+                RoaringBitmap union = new RoaringBitmap();
+                any.forEach(genreId -> union.or(current.books(genreId)));
+                result.and(union);
+            }
+            none.forEach(genreId -> result.andNot(current.books(genreId)));
+            int sorted = current.sorted;
+            List<UUID> added = new ArrayList<>();
+            PeekableIntIterator addedOrdinals = result.getIntIterator();
+            addedOrdinals.advanceIfNeeded(sorted);
+            while (addedOrdinals.hasNext()) {
+                UUID id = current.ids.get(addedOrdinals.next());
+                if (after == null || ID_ORDER.compare(id, after) > 0) {
+                    added.add(id);
+                }
+            }
+            added.sort(ID_ORDER);
+            PeekableIntIterator built = result.getIntIterator();
+            built.advanceIfNeeded(after == null ? 0 : current.firstAfter(after));
+            List<UUID> page = new ArrayList<>(Math.min(limit, result.getCardinality()));
+            int next = 0;
+            while (page.size() < limit) {
+                UUID fromBuild = built.hasNext() && built.peekNext() < sorted ? current.ids.get(built.peekNext()) : null;
+                UUID fromAdded = next < added.size() ? added.get(next) : null;
+                if (fromBuild == null && fromAdded == null) {
+                    break;
+                }
+                if (fromAdded == null || (fromBuild != null && ID_ORDER.compare(fromBuild, fromAdded) < 0)) {
+                    page.add(fromBuild);
+                    built.next();
+                } else {
+                    page.add(fromAdded);
+                    next++;
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int books() {
+        lock.readLock().lock();
+        try {
+            return current.live.getCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int genres() {
+        lock.readLock().lock();
+        try {
+            return current.genres.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the size of the bitmaps, the ordinal to id table adds about 16 bytes per book on top
+     */
+    public long bitmapBytes() {
+        lock.readLock().lock();
+        try {
+            return current.live.getLongSizeInBytes()
+                    + current.genres.values().stream().mapToLong(RoaringBitmap::getLongSizeInBytes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getBuildMillis() {
+        lock.readLock().lock();
+        try {
+            return buildMillis;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One version of the index, snapshots under construction are not thread safe and not visible to readers
+     * until swapped in.
+     */
+    public static final class Snapshot {
+
+        private final List<UUID> ids = new ArrayList<>();
+        private final Map<UUID, Integer> ordinals = new HashMap<>();
+        private final Map<UUID, RoaringBitmap> genres = new HashMap<>();
+        private final RoaringBitmap live = new RoaringBitmap();
+        // the ordinals below this are in id order
+        private int sorted;
+
+        private Snapshot() {}
+
+        public void addBook(UUID bookId) {
+            ordinal(bookId);
+        }
+
+        /**
+         * Links a book added before to a genre, links to unknown books are ignored.
+         */
+        public void addLink(UUID genreId, UUID bookId) {
+            Integer ordinal = ordinals.get(bookId);
+            if (ordinal != null) {
+                genres.computeIfAbsent(genreId, id -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+
+        private void put(UUID bookId, Collection<UUID> genreIds) {
+            int ordinal = ordinal(bookId);
+            genres.values().forEach(books -> books.remove(ordinal));
+            for (UUID genreId : genreIds) {
+                genres.computeIfAbsent(genreId, id -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+
+        private void removeBooks(Collection<UUID> bookIds) {
+            RoaringBitmap removed = new RoaringBitmap();
+            for (UUID bookId : bookIds) {
+                Integer ordinal = ordinals.get(bookId);
+                if (ordinal != null) {
+                    removed.add(ordinal);
+                }
+            }
+            live.andNot(removed);
+            genres.values().forEach(books -> books.andNot(removed));
+        }
+
+        private void removeBooksOfGenre(UUID genreId) {
+            RoaringBitmap removed = genres.remove(genreId);
+            if (removed != null) {
+                live.andNot(removed);
+                genres.values().forEach(books -> books.andNot(removed));
+            }
+        }
+
+        private void removeGenres(Collection<UUID> genreIds) {
+            genreIds.forEach(genres::remove);
+        }
+
+        private void optimize() {
+            live.runOptimize();
+            genres.values().forEach(RoaringBitmap::runOptimize);
+        }
+
+        private int ordinal(UUID bookId) {
+            Integer ordinal = ordinals.get(bookId);
+            if (ordinal == null) {
+                ordinal = ids.size();
+                if (sorted == ordinal && (ordinal == 0 || ID_ORDER.compare(ids.get(ordinal - 1), bookId) < 0)) {
+                    sorted++;
+                }
+                ids.add(bookId);
+                ordinals.put(bookId, ordinal);
+            }
+            live.add(ordinal);
+            return ordinal;
+        }
+
+        // the first of the id ordered ordinals whose id is after the given one
+        private int firstAfter(UUID after) {
+            int low = 0;
+            int high = sorted;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ID_ORDER.compare(ids.get(middle), after) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private RoaringBitmap books(UUID genreId) {
+            RoaringBitmap books = genres.get(genreId);
+            return books == null ? new RoaringBitmap() : books;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Builds the {@link GenreIndex} on startup from keyset scans of book and of the (genre_id, book_id) index of
+ * book_genre, switched off with books.filter-index.build-on-startup=false when a context is started without a database.
+ */
+@Singleton
+@Requires(property = "books.filter-index.build-on-startup", notEquals = "false")
+public class GenreIndexLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GenreIndexLoader.class);
+    private static final UUID START = new UUID(0L, 0L);
+    private static final int CHUNK_SIZE = 10000;
+
+    private final BookRepository bookRepository;
+    private final GenreIndex genreIndex;
+
+    public GenreIndexLoader(BookRepository bookRepository, GenreIndex genreIndex) {
+        this.bookRepository = bookRepository;
+        this.genreIndex = genreIndex;
+    }
+
+    @EventListener
+    void onStartup(StartupEvent event) {
+        build().subscribe(
+                null,
+                e -> LOG.warn("Unable to build the genre index", e));
+    }
+
+    public Mono<Void> build() {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            GenreIndex.Snapshot snapshot = genreIndex.startBuild();
+            return scan(after -> bookRepository.findIdsAfter(after, CHUNK_SIZE))
+                    .doOnNext(snapshot::addBook)
+                    .thenMany(links())
+                    .doOnNext(link -> snapshot.addLink(link[0], link[1]))
+                    .doOnError(e -> genreIndex.abortBuild())
+                    .then(Mono.<Void>fromRunnable(() -> {
+                        long millis = (System.nanoTime() - start) / 1_000_000;
+                        genreIndex.finishBuild(snapshot, millis);
+                        LOG.info("Built genre index of {} books and {} genres in {} ms, {} bytes of bitmaps",
+                                genreIndex.books(), genreIndex.genres(), millis, genreIndex.bitmapBytes());
+                    }));
+        });
+    }
+
+    private static Flux<UUID> scan(Function<UUID, Flux<UUID>> page) {
+        return page.apply(START).collectList()
+                .expand(ids -> ids.size() < CHUNK_SIZE ? Mono.empty() : page.apply(ids.get(ids.size() - 1)).collectList())
+                .flatMapIterable(ids -> ids);
+    }
+
+    // one scan over all genres, each link is {genre id, book id}
+    private Flux<UUID[]> links() {
+        return linksAfter(START, START)
+                .expand(links -> {
+                    if (links.size() < CHUNK_SIZE) {
+                        return Mono.empty();
+                    }
+                    UUID[] last = links.get(links.size() - 1);
+                    return linksAfter(last[0], last[1]);
+                })
+                .flatMapIterable(links -> links);
+    }
+
+    private Mono<List<UUID[]>> linksAfter(UUID genreId, UUID bookId) {
+        return bookRepository.findLinksAfter(genreId, bookId, CHUNK_SIZE)
+                .map(link -> {
+                    int space = link.indexOf(' ');
+                    return new UUID[] {UUID.fromString(link.substring(0, space)), UUID.fromString(link.substring(space + 1))};
+                })
+                .collectList();
+    }
+}
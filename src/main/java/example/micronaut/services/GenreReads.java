@@ -0,0 +1,28 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Genre;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The genre queries that only read, implemented against the primary by {@link GenreRepository} and against the
+ * replica by {@link GenreReplicaRepository}. {@link ReadRouting} picks one per request.
+ */
+public interface GenreReads {
+
+    @NonNull
+    Mono<Genre> findById(@NonNull UUID id);
+
+    @NonNull
+    Mono<Page<Genre>> findAll(@NonNull Pageable pageable);
+
+    Flux<Genre> findAllByIdIn(@NonNull Set<UUID> ids);
+
+    Mono<Long> findVersionById(@NonNull UUID id);
+}
@@ -0,0 +1,18 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Genre;
+import example.micronaut.metrics.Instrumented;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.data.annotation.Repository;
+import io.micronaut.data.repository.GenericRepository;
+
+import java.util.UUID;
+
+/**
+ * {@link GenreReads} against the jpa.replica session factory, only there when replica.enabled is set.
+ */
+@Repository("replica")
+@Requires(property = "replica.enabled", value = "true")
+@Instrumented(value = "db.repository", component = "GenreReplicaRepository")
+public interface GenreReplicaRepository extends GenericRepository<Genre, UUID>, GenreReads {
+}
@@ -1,22 +1,24 @@
 package example.micronaut.services;
 
 import example.micronaut.domain.Genre;
+import example.micronaut.metrics.Instrumented;
 import io.micronaut.core.annotation.NonNull;
 import io.micronaut.data.annotation.Id;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.annotation.Repository;
 import io.micronaut.data.exceptions.DataAccessException;
 import io.micronaut.data.repository.reactive.ReactorPageableRepository;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.transaction.Transactional;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
-import java.util.Set;
+import java.util.Collection;
 import java.util.UUID;
 
 @Repository
-public interface GenreRepository extends ReactorPageableRepository<Genre, UUID> {
+@Instrumented(value = "db.repository", component = "GenreRepository")
+public interface GenreRepository extends ReactorPageableRepository<Genre, UUID>, GenreReads {
 
     Mono<Genre> save(@NonNull @NotBlank String name);
 
@@ -28,7 +30,12 @@ public interface GenreRepository extends ReactorPageableRepository<Genre, UUID>
                 });
     }
 
+    @Query("update Genre g set g.name = :name, g.version = g.version + 1 where g.id = :id")
     Mono<Long> update(@NonNull @NotNull @Id UUID id, @NonNull @NotBlank String name);
 
-    Flux<Genre> findAllByIdIn(@NonNull Set<UUID> ids);
+    @Query(value = "delete from book_genre where genre_id in (:ids)", nativeQuery = true)
+    Mono<Long> deleteBookLinks(@NonNull Collection<UUID> ids);
+
+    @Query(value = "delete from genre where id in (:ids)", nativeQuery = true)
+    Mono<Long> deleteAllByIdIn(@NonNull Collection<UUID> ids);
 }
@@ -0,0 +1,217 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Genre;
+import example.micronaut.domain.GenreStats;
+import example.micronaut.metrics.Instrumented;
+import example.micronaut.responses.BulkDeleteResult;
+import example.micronaut.responses.GenreBookCount;
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * All genre reads and writes go through here so the {@link GenreCache} stays consistent with the database.
+ */
+@Singleton
+@Instrumented(value = "service", operation = true)
+public class GenreService {
+
+    private final ReadRouting readRouting;
+    private final GenreRepository genreRepository;
+    private final GenreCache genreCache;
+    private final BookViewRepository bookViewRepository;
+    private final GenreStatsRepository genreStatsRepository;
+    private final BookCache bookCache;
+    private final GenreIndex genreIndex;
+    private final SingleFlight<UUID, Genre> genreFlight;
+    private final SingleFlight<UUID, Long> versionFlight;
+    private final BatchLoader<UUID, Genre> genreLoader;
+
+    public GenreService(ReadRouting readRouting,
+                        GenreRepository genreRepository,
+                        GenreCache genreCache,
+                        BookViewRepository bookViewRepository,
+                        GenreStatsRepository genreStatsRepository,
+                        BookCache bookCache,
+                        GenreIndex genreIndex,
+                        @Named("genre") SingleFlight<UUID, Genre> genreFlight,
+                        @Named("genre-version") SingleFlight<UUID, Long> versionFlight,
+                        @Named("genre") BatchLoader<UUID, Genre> genreLoader) {
+        this.readRouting = readRouting;
+        this.genreRepository = genreRepository;
+        this.genreCache = genreCache;
+        this.bookViewRepository = bookViewRepository;
+        this.genreStatsRepository = genreStatsRepository;
+        this.bookCache = bookCache;
+        this.genreIndex = genreIndex;
+        this.genreFlight = genreFlight;
+        this.versionFlight = versionFlight;
+        this.genreLoader = genreLoader;
+    }
+
+    public Mono<Genre> findById(UUID id) {
+        Genre genre = genreCache.get(id);
+        if (genre != null) {
+            return Mono.just(genre);
+        }
+        if (readRouting.bypassShared()) {
+            long epoch = genreCache.epoch();
+            return genreRepository.findById(id)
+                    .doOnNext(loaded -> genreCache.put(loaded, epoch));
+        }
+        // the shared loader reads from the replica when there is one
+        return genreFlight.load(id, key -> {
+            long epoch = genreCache.epoch();
+            return genreLoader.load(key).doOnNext(loaded -> cache(loaded, !readRouting.hasReplica(), epoch));
+        });
+    }
+
+    /**
+     * Resolves the genres for the given ids, only the ids missing from the cache are looked up in one query.
+     */
+    public Flux<Genre> findAllById(Set<UUID> ids) {
+        List<Genre> cached = new ArrayList<>(ids.size());
+        Set<UUID> missing = new HashSet<>();
+        for (UUID id : ids) {
+            Genre genre = genreCache.get(id);
+            if (genre != null) {
+                cached.add(genre);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Flux.fromIterable(cached);
+        }
+        boolean fromPrimary = !readRouting.toReplica();
+        long epoch = genreCache.epoch();
+        return Flux.fromIterable(cached)
+                .concatWith(readRouting.genres().findAllByIdIn(missing).doOnNext(genre -> cache(genre, fromPrimary, epoch)));
+    }
+
+    /**
+     * The genres with the given ids in the order asked for, ids without a genre are skipped.
+     */
+    public Mono<List<Genre>> findAllByIdInOrder(List<UUID> ids) {
+        return findAllById(new HashSet<>(ids))
+                .collectMap(Genre::getId)
+                .map(genres -> ids.stream().distinct().map(genres::get).filter(Objects::nonNull).collect(Collectors.toList()));
+    }
+
+    /**
+     * The genre's version, from the cache when it is there, otherwise without loading the genre.
+     */
+    public Mono<Long> findVersionById(UUID id) {
+        Genre genre = genreCache.get(id);
+        if (genre != null) {
+            return Mono.just(genre.getVersion());
+        }
+        if (readRouting.bypassShared()) {
+            return genreRepository.findVersionById(id);
+        }
+        return versionFlight.load(id, readRouting.sharedGenres()::findVersionById);
+    }
+
+    /**
+     * The book count of every genre with books, largest first, read from genre_stats with the names from the cache.
+     */
+    public Mono<List<GenreBookCount>> stats() {
+        return genreStatsRepository.findByBookCountGreaterThan(0)
+                .collectList()
+                .flatMap(stats -> findAllById(stats.stream().map(GenreStats::getGenreId).collect(Collectors.toSet()))
+                        .collectMap(Genre::getId)
+                        .map(genres -> stats.stream()
+                                .filter(stat -> genres.containsKey(stat.getGenreId()))
+                                .sorted(Comparator.comparingLong(GenreStats::getBookCount).reversed())
+                                .map(stat -> new GenreBookCount(stat.getGenreId(), genres.get(stat.getGenreId()).getName(), stat.getBookCount()))
+                                .collect(Collectors.toList())));
+    }
+
+    public Mono<Page<Genre>> findAll(Pageable pageable) {
+        return readRouting.genres().findAll(pageable);
+    }
+
+    public Mono<Genre> save(String name) {
+        return genreRepository.save(name)
+                .doOnNext(genreCache::put);
+    }
+
+    public Mono<Genre> saveWithException(String name) {
+        return genreRepository.saveWithException(name);
+    }
+
+    /**
+     * Renames the genre and its read model entries in one transaction. The caches are evicted once it committed,
+     * evicting before would let a concurrent read cache the old name again.
+     */
+    public Mono<Long> update(UUID id, String name) {
+        return updateInTransaction(id, name)
+                .doOnNext(updated -> {
+                    genreCache.evict(id);
+                    if (updated > 0) {
+                        bookCache.evictGenres(Set.of(id));
+                    }
+                });
+    }
+
+    @Transactional
+    @Instrumented("service")
+    protected Mono<Long> updateInTransaction(UUID id, String name) {
+        return genreRepository.update(id, name)
+                .flatMap(updated -> updated > 0
+                        ? bookViewRepository.refreshGenre(id).thenReturn(updated)
+                        : Mono.just(updated));
+    }
+
+    public Mono<Long> deleteById(UUID id) {
+        return deleteAll(Set.of(id))
+                .map(BulkDeleteResult::getGenres);
+    }
+
+    /**
+     * Deletes the genres, their links to books and their counts with one statement each, and drops them from the
+     * read model of the books that carried them. The caches and the genre index follow once the transaction committed.
+     */
+    public Mono<BulkDeleteResult> deleteAll(Set<UUID> ids) {
+        return deleteAllInTransaction(ids)
+                .doOnNext(result -> {
+                    ids.forEach(genreCache::evict);
+                    bookCache.evictGenres(ids);
+                    genreIndex.removeGenres(ids);
+                });
+    }
+
+    @Transactional
+    @Instrumented("service")
+    protected Mono<BulkDeleteResult> deleteAllInTransaction(Set<UUID> ids) {
+        return bookViewRepository.removeGenres(ids)
+                .then(genreStatsRepository.deleteAllByGenreIdIn(ids))
+                .then(genreRepository.deleteBookLinks(ids))
+                .flatMap(links -> genreRepository.deleteAllByIdIn(ids)
+                        .map(genres -> new BulkDeleteResult(0, genres, links)));
+    }
+
+    // a lagging replica could put back a name an update just evicted, and nothing would evict it again
+    private void cache(Genre genre, boolean fromPrimary, long epoch) {
+        if (fromPrimary) {
+            genreCache.put(genre, epoch);
+        }
+    }
+
+    public GenreCache getCache() {
+        return genreCache;
+    }
+}
@@ -0,0 +1,32 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically recounts genre_stats from book_genre. The write paths keep the counts exact, this only repairs
+ * drift from writes that bypass them, such as manual SQL. Runs every genre.stats.reconcile-interval.
+ */
+@Singleton
+@Requires(property = "genre.stats.reconcile-interval")
+public class GenreStatsReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GenreStatsReconciler.class);
+
+    private final GenreStatsRepository genreStatsRepository;
+
+    public GenreStatsReconciler(GenreStatsRepository genreStatsRepository) {
+        this.genreStatsRepository = genreStatsRepository;
+    }
+
+    @Scheduled(fixedDelay = "${genre.stats.reconcile-interval}", initialDelay = "${genre.stats.reconcile-interval}")
+    void reconcile() {
+        genreStatsRepository.rebuild()
+                .subscribe(
+                        repaired -> LOG.info("Repaired the book counts of {} genres", repaired),
+                        e -> LOG.warn("Unable to reconcile genre book counts", e));
+    }
+}
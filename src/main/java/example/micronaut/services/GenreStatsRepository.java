@@ -0,0 +1,64 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.GenreStats;
+import example.micronaut.metrics.Instrumented;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.annotation.Repository;
+import io.micronaut.data.repository.reactive.ReactorCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.transaction.Transactional;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * The per genre book counts. The statements that keep them in step with book_genre as links change live next to
+ * the link statements in {@link BookRepository}.
+ */
+@Repository
+@Instrumented(value = "db.repository", component = "GenreStatsRepository")
+public interface GenreStatsRepository extends ReactorCrudRepository<GenreStats, UUID> {
+
+    String RECOUNT = "insert into genre_stats (genre_id, book_count) " +
+            "select g.id, c.links - coalesce(s.book_count, 0) from genre g " +
+            "cross join lateral (select count(*) as links from book_genre bg where bg.genre_id = g.id) c " +
+            "left join genre_stats s on s.genre_id = g.id " +
+            "where c.links <> coalesce(s.book_count, 0) order by g.id " +
+            "on conflict (genre_id) do update set book_count = genre_stats.book_count + excluded.book_count";
+
+    @Query(value = "insert into genre_stats (genre_id, book_count) values (:genreId, :delta) " +
+            "on conflict (genre_id) do update set book_count = genre_stats.book_count + excluded.book_count",
+            nativeQuery = true)
+    Mono<Long> add(@NonNull UUID genreId, long delta);
+
+    Flux<GenreStats> findByBookCountGreaterThan(long bookCount);
+
+    @Query(value = "delete from genre_stats where genre_id in (:genreIds)", nativeQuery = true)
+    Mono<Long> deleteAllByGenreIdIn(@NonNull Collection<UUID> genreIds);
+
+    /**
+     * Adds the difference between each genre's links and its count, as one snapshot sees them, to the count.
+     * Setting the count instead would drop the increments of writes that commit while the recount runs, as their
+     * links are missing from its snapshot. Their links and counts commit together, so the difference leaves both out.
+     *
+     * @return the number of genres whose count was off
+     */
+    @Query(value = RECOUNT, nativeQuery = true)
+    Mono<Long> recount();
+
+    @Query(value = "delete from genre_stats s where not exists (select 1 from genre g where g.id = s.genre_id)",
+            nativeQuery = true)
+    Mono<Long> deleteOrphans();
+
+    /**
+     * Recounts every genre from book_genre, repairing any drift.
+     *
+     * @return the number of genres whose count was repaired
+     */
+    @Transactional
+    default Mono<Long> rebuild() {
+        return deleteOrphans().then(recount());
+    }
+}
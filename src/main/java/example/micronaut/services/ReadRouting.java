@@ -0,0 +1,102 @@
+package example.micronaut.services;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.hibernate.reactive.operations.HibernateReactorRepositoryOperations;
+import io.micronaut.http.HttpMethod;
+import io.micronaut.http.context.ServerRequestContext;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+/**
+ * Decides where reads go. With a replica configured, GET requests read from it unless the client wrote within its
+ * read-your-writes window. Every other request, and work outside a request such as the startup loaders, reads
+ * from the primary.
+ * <p>
+ * The decision is made while a pipeline is assembled, on the thread serving the request. Lookups shared between
+ * requests, such as the batch loaders, always read from the replica when there is one. Callers that must read
+ * from the primary bypass them.
+ */
+@Singleton
+public class ReadRouting {
+
+    /**
+     * Request attribute set while a client's read-your-writes window is open.
+     */
+    public static final String PRIMARY_READS = ReadRouting.class.getName() + ".primaryReads";
+
+    private final HibernateReactorRepositoryOperations primaryOperations;
+    private final BookRepository bookRepository;
+    private final GenreRepository genreRepository;
+    @Nullable
+    private final HibernateReactorRepositoryOperations replicaOperations;
+    @Nullable
+    private final BookReplicaRepository bookReplica;
+    @Nullable
+    private final GenreReplicaRepository genreReplica;
+
+    public ReadRouting(HibernateReactorRepositoryOperations primaryOperations,
+                       BookRepository bookRepository,
+                       GenreRepository genreRepository,
+                       @Nullable @Named("replica") HibernateReactorRepositoryOperations replicaOperations,
+                       @Nullable BookReplicaRepository bookReplica,
+                       @Nullable GenreReplicaRepository genreReplica) {
+        this.primaryOperations = primaryOperations;
+        this.bookRepository = bookRepository;
+        this.genreRepository = genreRepository;
+        this.replicaOperations = replicaOperations;
+        this.bookReplica = bookReplica;
+        this.genreReplica = genreReplica;
+    }
+
+    public boolean hasReplica() {
+        return replicaOperations != null && bookReplica != null && genreReplica != null;
+    }
+
+    /**
+     * Whether the request being served may read from the replica.
+     */
+    public boolean toReplica() {
+        return hasReplica() && ServerRequestContext.currentRequest()
+                .filter(request -> request.getMethod() == HttpMethod.GET || request.getMethod() == HttpMethod.HEAD)
+                .filter(request -> request.getAttribute(PRIMARY_READS).isEmpty())
+                .isPresent();
+    }
+
+    /**
+     * Whether the request being served must read from the primary although there is a replica, so shared
+     * lookups that read from the replica have to be bypassed.
+     */
+    public boolean bypassShared() {
+        return hasReplica() && !toReplica();
+    }
+
+    public BookReads books() {
+        return toReplica() ? bookReplica : bookRepository;
+    }
+
+    public GenreReads genres() {
+        return toReplica() ? genreReplica : genreRepository;
+    }
+
+    /**
+     * The operations of the session factory {@link #books()} and {@link #genres()} read from, to scope their calls
+     * to one session.
+     */
+    public HibernateReactorRepositoryOperations operations() {
+        return toReplica() ? replicaOperations : primaryOperations;
+    }
+
+    /**
+     * Book reads shared between requests.
+     */
+    public BookReads sharedBooks() {
+        return hasReplica() ? bookReplica : bookRepository;
+    }
+
+    /**
+     * Genre reads shared between requests.
+     */
+    public GenreReads sharedGenres() {
+        return hasReplica() ? genreReplica : genreRepository;
+    }
+}
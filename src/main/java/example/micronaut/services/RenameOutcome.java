@@ -0,0 +1,20 @@
+package example.micronaut.services;
+
+/**
+ * What a conditional rename did, decoded from the status BookRepository.rename returns, or NAME_TAKEN when another
+ * book already has the name.
+ */
+public enum RenameOutcome {
+
+    RENAMED,
+    VERSION_MISMATCH,
+    NOT_FOUND,
+    NAME_TAKEN;
+
+    static RenameOutcome of(int status) {
+        if (status > 0) {
+            return RENAMED;
+        }
+        return status == 0 ? VERSION_MISMATCH : NOT_FOUND;
+    }
+}
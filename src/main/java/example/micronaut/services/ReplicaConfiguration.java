@@ -0,0 +1,52 @@
+package example.micronaut.services;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.Duration;
+
+/**
+ * Routing of reads to the read-only jpa.replica session factory, off unless replica.enabled is set.
+ */
+@ConfigurationProperties("replica")
+public class ReplicaConfiguration {
+
+    private boolean enabled;
+
+    @NotNull
+    private Duration readYourWrites = Duration.ofSeconds(5);
+
+    @NotBlank
+    private String cookieName = "primary-reads-until";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return how long after a write the same client keeps reading from the primary, 0 turns this off
+     */
+    public Duration getReadYourWrites() {
+        return readYourWrites;
+    }
+
+    public void setReadYourWrites(Duration readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    /**
+     * @return the cookie carrying the end of a client's read-your-writes window
+     */
+    public String getCookieName() {
+        return cookieName;
+    }
+
+    public void setCookieName(String cookieName) {
+        this.cookieName = cookieName;
+    }
+}
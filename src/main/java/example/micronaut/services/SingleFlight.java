@@ -0,0 +1,72 @@
+package example.micronaut.services;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent loads of the same key, the first caller's load runs and every caller arriving before it
+ * finishes subscribes to the same result. Nothing is kept once the load completes, so this never serves a value
+ * older than the in-flight query.
+ *
+ * @param <K> the key
+ * @param <V> the loaded value
+ */
+public class SingleFlight<K, V> {
+
+    private final String name;
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The shared load is cached rather than shared so a caller cancelling, for instance a client disconnecting,
+     * does not cancel it for the others.
+     */
+    public Mono<V> load(K key, Function<K, Mono<V>> loader) {
+        return Mono.defer(() -> {
+            boolean[] leader = new boolean[1];
+            Mono<V> flight = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return loader.apply(k)
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache();
+            });
+            if (leader[0]) {
+                loads.increment();
+            } else {
+                coalesced.increment();
+            }
+            return flight;
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * @return the number of loads that reached the loader
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * @return the number of calls that joined a load already in flight
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+}
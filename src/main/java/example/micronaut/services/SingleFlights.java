@@ -0,0 +1,46 @@
+package example.micronaut.services;
+
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import io.micronaut.context.annotation.Factory;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+
+import java.util.UUID;
+
+/**
+ * The {@link SingleFlight}s in front of the hot single entity lookups.
+ */
+@Factory
+public class SingleFlights {
+
+    @Singleton
+    @Named("book")
+    SingleFlight<UUID, Book> book() {
+        return new SingleFlight<>("book");
+    }
+
+    @Singleton
+    @Named("book-cached")
+    SingleFlight<UUID, CachedBook> bookCached() {
+        return new SingleFlight<>("book-cached");
+    }
+
+    @Singleton
+    @Named("book-version")
+    SingleFlight<UUID, String> bookVersion() {
+        return new SingleFlight<>("book-version");
+    }
+
+    @Singleton
+    @Named("genre")
+    SingleFlight<UUID, Genre> genre() {
+        return new SingleFlight<>("genre");
+    }
+
+    @Singleton
+    @Named("genre-version")
+    SingleFlight<UUID, Long> genreVersion() {
+        return new SingleFlight<>("genre-version");
+    }
+}
@@ -0,0 +1,20 @@
+-- the primary key needs unique links and the foreign keys need both ends to exist
+delete from book_genre a
+    using book_genre b
+    where a.ctid < b.ctid
+      and a.book_id = b.book_id
+      and a.genre_id = b.genre_id;
+
+delete from book_genre bg
+    where not exists (select 1 from book b where b.id = bg.book_id)
+       or not exists (select 1 from genre g where g.id = bg.genre_id);
+
+alter table book_genre add constraint book_genre_pkey primary key (book_id, genre_id);
+
+-- serves genre side lookups, the primary key already covers book_id first
+create index book_genre_genre_id_book_id_idx on book_genre (genre_id, book_id);
+
+alter table book_genre add constraint book_genre_book_id_fkey
+    foreign key (book_id) references book (id) on delete cascade;
+alter table book_genre add constraint book_genre_genre_id_fkey
+    foreign key (genre_id) references genre (id) on delete cascade;
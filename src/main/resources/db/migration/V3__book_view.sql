@@ -0,0 +1,15 @@
+-- one row per book with its genres as a json array, ordered by name, so reads need no join
+-- the foreign key is deferred because the view row is written before hibernate flushes a new book
+create table book_view (
+    id     uuid primary key references book (id) on delete cascade deferrable initially deferred,
+    name   varchar(255) not null,
+    genres text not null default '[]'
+);
+
+insert into book_view (id, name, genres)
+select b.id,
+       b.name,
+       coalesce((select json_agg(json_build_object('id', g.id, 'name', g.name) order by g.name)
+                 from book_genre bg join genre g on g.id = bg.genre_id
+                 where bg.book_id = b.id)::text, '[]')
+from book b;
@@ -0,0 +1,10 @@
+-- optimistic versions, bumped on every change and used to derive ETags
+alter table book add column version bigint not null default 0;
+alter table genre add column version bigint not null default 0;
+alter table book_view add column version bigint not null default 0;
+
+-- the view's genre json now carries each genre's version
+update book_view v
+set genres = coalesce((select json_agg(json_build_object('id', g.id, 'name', g.name, 'version', g.version) order by g.name)
+                       from book_genre bg join genre g on g.id = bg.genre_id
+                       where bg.book_id = v.id)::text, '[]');
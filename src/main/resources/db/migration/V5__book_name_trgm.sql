@@ -0,0 +1,4 @@
+-- trigram index so name searches, both similarity (%) and substring (ilike), are index lookups
+create extension if not exists pg_trgm;
+
+create index book_name_trgm_idx on book using gin (name gin_trgm_ops);
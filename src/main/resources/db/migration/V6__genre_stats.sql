@@ -0,0 +1,9 @@
+-- book count per genre, maintained by the statements that change book_genre
+create table genre_stats (
+    genre_id   uuid primary key references genre (id) on delete cascade,
+    book_count bigint not null default 0
+);
+
+insert into genre_stats (genre_id, book_count)
+select g.id, (select count(*) from book_genre bg where bg.genre_id = g.id)
+from genre g;
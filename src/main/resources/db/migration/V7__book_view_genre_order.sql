@@ -0,0 +1,5 @@
+-- the view's genres are ordered by id, the same order whichever path wrote the row
+update book_view v
+set genres = coalesce((select json_agg(json_build_object('id', g.id, 'name', g.name, 'version', g.version) order by g.id)
+                       from book_genre bg join genre g on g.id = bg.genre_id
+                       where bg.book_id = v.id)::text, '[]');
@@ -0,0 +1,126 @@
+package example.micronaut.perf;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * HTTP access to the application under test, plus the books and genres the write routes created so later routes
+ * can delete them and whatever is left is removed at the end.
+ */
+final class Client {
+
+    private static final int DELETE_CHUNK = 1000;
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final Deque<UUID> createdBooks = new ConcurrentLinkedDeque<>();
+    private final Deque<UUID> createdGenres = new ConcurrentLinkedDeque<>();
+
+    Client(String baseUrl, Duration timeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+    }
+
+    HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+    }
+
+    HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    HttpRequest json(String method, String path, String body) {
+        return request(path)
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException, InterruptedException {
+        return httpClient.send(request, handler);
+    }
+
+    /**
+     * A book created outside the timed section, for the delete routes once the save routes' books run out.
+     */
+    UUID takeBook(Samples samples, ThreadLocalRandom random) throws IOException, InterruptedException {
+        UUID id = createdBooks.pollFirst();
+        if (id != null) {
+            return id;
+        }
+        HttpResponse<String> response = send(json("POST", "/books", Json.bookCommand(null, Json.uniqueName("macro book"),
+                List.of(samples.genre(random).id.toString()))), HttpResponse.BodyHandlers.ofString());
+        return created(response).orElseThrow(() -> new IOException("Unable to create a book: " + response.statusCode()));
+    }
+
+    UUID takeGenre() throws IOException, InterruptedException {
+        UUID id = createdGenres.pollFirst();
+        if (id != null) {
+            return id;
+        }
+        HttpResponse<String> response = send(json("POST", "/genres", Json.object("name", Json.string(Json.uniqueName("macro genre")))),
+                HttpResponse.BodyHandlers.ofString());
+        return created(response).orElseThrow(() -> new IOException("Unable to create a genre: " + response.statusCode()));
+    }
+
+    void bookCreated(UUID id) {
+        createdBooks.addLast(id);
+    }
+
+    void genreCreated(UUID id) {
+        createdGenres.addLast(id);
+    }
+
+    /**
+     * The id at the end of the Location header of a 201.
+     */
+    static Optional<UUID> created(HttpResponse<?> response) {
+        if (response.statusCode() != 201) {
+            return Optional.empty();
+        }
+        return response.headers().firstValue("Location")
+                .map(location -> UUID.fromString(location.substring(location.lastIndexOf('/') + 1)));
+    }
+
+    /**
+     * Bulk deletes whatever the write routes created and nothing deleted again.
+     */
+    void cleanUp() throws IOException, InterruptedException {
+        deleteAll("/books/delete", createdBooks);
+        deleteAll("/genres/delete", createdGenres);
+    }
+
+    private void deleteAll(String path, Deque<UUID> ids) throws IOException, InterruptedException {
+        while (!ids.isEmpty()) {
+            List<UUID> chunk = new ArrayList<>(DELETE_CHUNK);
+            UUID id;
+            while (chunk.size() < DELETE_CHUNK && (id = ids.pollFirst()) != null) {
+                chunk.add(id);
+            }
+            String body = Json.object("ids", Json.array(chunk.stream().map(UUID::toString).collect(Collectors.toList())));
+            HttpResponse<String> response = send(json("POST", path, body), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Unable to clean up " + chunk.size() + " rows through " + path + ": " + response.statusCode());
+            }
+        }
+    }
+}
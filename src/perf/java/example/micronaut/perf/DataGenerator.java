@@ -0,0 +1,175 @@
+package example.micronaut.perf;
+
+import example.micronaut.services.BookViewRepository;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Replaces the catalogue in a migrated database with a synthetic one of the given size. Books get between
+ * --min-genres and --max-genres genres, uniformly, and genres are picked from a Zipf distribution with exponent
+ * --skew, so with a skew above 0 a few genres carry most of the books. The same options and --seed always produce
+ * the same rows.
+ * <p>
+ * Rows go in through COPY in one transaction, then the read model and the genre counts are rebuilt from them with
+ * one statement each and the tables are analyzed. Run the application once first so Flyway has created the schema.
+ * A running application keeps its caches and genre index, restart it afterwards.
+ */
+public final class DataGenerator {
+
+    private static final int COPY_BUFFER = 1 << 16;
+
+    // two of these make up each book name, so searches have something to find at every size
+    private static final String[] WORDS = {
+            "war", "worlds", "shining", "night", "river", "garden", "empire", "shadow", "winter", "ocean",
+            "silent", "golden", "broken", "last", "secret", "iron", "glass", "storm", "lost", "city"
+    };
+
+    private static final String TRUNCATE = "truncate book_genre, book_view, genre_stats, book, genre";
+
+    private static final String BUILD_VIEWS = "insert into book_view (id, name, genres, version) " +
+            "select v.id, v.name, " + BookViewRepository.GENRES_JSON + ", v.version from book v";
+
+    private static final String BUILD_STATS = "insert into genre_stats (genre_id, book_count) " +
+            "select g.id, (select count(*) from book_genre bg where bg.genre_id = g.id) from genre g";
+
+    private DataGenerator() {}
+
+    public static void main(String[] args) throws SQLException, IOException {
+        Options options = Options.parse(args);
+        int books = options.getInt("books", 100_000);
+        int genres = options.getInt("genres", 1_000);
+        int minGenres = options.getInt("min-genres", 0);
+        int maxGenres = options.getInt("max-genres", 5);
+        double skew = options.getDouble("skew", 1.0);
+        long seed = options.getLong("seed", 42L);
+        if (books < 0 || genres < 1 || minGenres < 0 || maxGenres < minGenres || maxGenres > genres || skew < 0) {
+            throw new IllegalArgumentException("Need books >= 0, genres >= 1, 0 <= min-genres <= max-genres <= genres and skew >= 0");
+        }
+        Database database = options.database();
+
+        long start = System.nanoTime();
+        try (Connection connection = database.connect()) {
+            connection.setAutoCommit(false);
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            Random random = new Random(seed);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(TRUNCATE);
+            }
+
+            UUID[] genreIds = new UUID[genres];
+            try (Writer out = copy(pgConnection, "genre")) {
+                for (int i = 0; i < genres; i++) {
+                    genreIds[i] = randomUuid(random);
+                    out.write(genreIds[i] + ",genre " + i + ",0\n");
+                }
+            }
+            log("Copied %d genres", genres);
+
+            UUID[] bookIds = new UUID[books];
+            try (Writer out = copy(pgConnection, "book")) {
+                for (int i = 0; i < books; i++) {
+                    bookIds[i] = randomUuid(random);
+                    out.write(bookIds[i] + "," + WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i + ",0\n");
+                }
+            }
+            log("Copied %d books", books);
+
+            Zipf zipf = new Zipf(genres, skew);
+            long links = 0;
+            int[] picked = new int[maxGenres];
+            try (Writer out = copy(pgConnection, "book_genre")) {
+                for (UUID bookId : bookIds) {
+                    int count = zipf.distinct(random, minGenres + random.nextInt(maxGenres - minGenres + 1), picked);
+                    for (int i = 0; i < count; i++) {
+                        out.write(bookId + "," + genreIds[picked[i]] + "\n");
+                    }
+                    links += count;
+                }
+            }
+            log("Copied %d links", links);
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(BUILD_VIEWS);
+                statement.execute(BUILD_STATS);
+            }
+            connection.commit();
+            log("Built the read model and genre counts");
+
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("analyze book, genre, book_genre, book_view, genre_stats");
+            }
+        }
+        log("Generated %s in %d s", database.size(), (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private static Writer copy(PGConnection connection, String table) throws SQLException {
+        String columns = table.equals("book_genre") ? "(book_id, genre_id)" : "(id, name, version)";
+        PGCopyOutputStream stream = new PGCopyOutputStream(connection, "copy " + table + " " + columns + " from stdin with (format csv)", COPY_BUFFER);
+        return new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), COPY_BUFFER);
+    }
+
+    private static UUID randomUuid(Random random) {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf(format + "%n", args);
+    }
+
+    /**
+     * Genre indexes where index i is picked with a weight of 1 / (i + 1)^skew, a skew of 0 is uniform.
+     */
+    static final class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int size, double skew) {
+            cumulative = new double[size];
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += 1.0 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < size; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+
+        /**
+         * Fills picked with up to count different indexes and returns how many it found. With a steep skew the
+         * tail is rarely drawn, so it gives up after a bounded number of repeats rather than looping.
+         */
+        int distinct(Random random, int count, int[] picked) {
+            int found = 0;
+            for (int attempt = 0; found < count && attempt < count * 20; attempt++) {
+                int index = next(random);
+                boolean seen = false;
+                for (int i = 0; i < found && !seen; i++) {
+                    seen = picked[i] == index;
+                }
+                if (!seen) {
+                    picked[found++] = index;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package example.micronaut.perf;
+
+/**
+ * Row counts a benchmark run was measured against.
+ */
+final class DataSize {
+
+    private final long books;
+    private final long genres;
+    private final long links;
+
+    DataSize(long books, long genres, long links) {
+        this.books = books;
+        this.genres = genres;
+        this.links = links;
+    }
+
+    long getBooks() {
+        return books;
+    }
+
+    long getGenres() {
+        return genres;
+    }
+
+    long getLinks() {
+        return links;
+    }
+
+    @Override
+    public String toString() {
+        return books + " books, " + genres + " genres, " + links + " links";
+    }
+}
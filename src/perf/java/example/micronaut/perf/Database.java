@@ -0,0 +1,43 @@
+package example.micronaut.perf;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Plain JDBC access to the database under test, outside the application.
+ */
+final class Database {
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    Database(String url, String username, String password) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    /**
+     * Exact row counts of book, genre and book_genre.
+     */
+    DataSize size() throws SQLException {
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select (select count(*) from book), (select count(*) from genre), (select count(*) from book_genre)")) {
+            rows.next();
+            return new DataSize(rows.getLong(1), rows.getLong(2), rows.getLong(3));
+        }
+    }
+
+    String getUrl() {
+        return url;
+    }
+}
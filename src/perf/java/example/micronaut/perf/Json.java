@@ -0,0 +1,77 @@
+package example.micronaut.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Just enough JSON for the request bodies of the routes, the driver never decodes a full response.
+ */
+final class Json {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-fA-F-]{36})\"");
+
+    private Json() {}
+
+    static String string(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    static String array(List<String> values) {
+        return values.stream().map(Json::string).collect(Collectors.joining(",", "[", "]"));
+    }
+
+    /**
+     * @param fields names alternating with values that are already JSON
+     */
+    static String object(String... fields) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i < fields.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(string(fields[i])).append(':').append(fields[i + 1]);
+        }
+        return json.append('}').toString();
+    }
+
+    static String bookCommand(UUID id, String name, List<String> genreIds) {
+        return id == null
+                ? object("name", string(name), "genres", array(genreIds))
+                : object("id", string(id.toString()), "name", string(name), "genres", array(genreIds));
+    }
+
+    static String uniqueName(String prefix) {
+        return prefix + " " + UUID.randomUUID();
+    }
+
+    /**
+     * Every "id" field in the body, in order.
+     */
+    static List<UUID> ids(String body) {
+        List<UUID> ids = new ArrayList<>();
+        Matcher matcher = ID.matcher(body);
+        while (matcher.find()) {
+            ids.add(UUID.fromString(matcher.group(1)));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,99 @@
+package example.micronaut.perf;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Every latency one worker measured on a route, in nanoseconds, plus how its responses ended. Workers record into
+ * their own instance and the driver merges them once the route is done.
+ */
+final class Latencies {
+
+    private long[] nanos = new long[1024];
+    private int size;
+    private long span;
+    private long errors;
+    private long rejected;
+    private String firstError;
+
+    /**
+     * @param span from the start of the measured window to the end of this request
+     */
+    void ok(long latency, long span) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = latency;
+        this.span = Math.max(this.span, span);
+    }
+
+    /**
+     * 503s from admission control, kept apart from failures.
+     */
+    void rejected() {
+        rejected++;
+    }
+
+    void error(String description) {
+        errors++;
+        if (firstError == null) {
+            firstError = description;
+        }
+    }
+
+    void merge(Latencies other) {
+        if (size + other.size > nanos.length) {
+            nanos = Arrays.copyOf(nanos, size + other.size);
+        }
+        System.arraycopy(other.nanos, 0, nanos, size, other.size);
+        size += other.size;
+        span = Math.max(span, other.span);
+        errors += other.errors;
+        rejected += other.rejected;
+        if (firstError == null) {
+            firstError = other.firstError;
+        }
+    }
+
+    /**
+     * Sorts the recorded latencies, call once all workers have been merged in.
+     */
+    Latencies sorted() {
+        Arrays.sort(nanos, 0, size);
+        return this;
+    }
+
+    int count() {
+        return size;
+    }
+
+    /**
+     * The measured window, or longer when requests started in it finished after it closed.
+     */
+    double seconds(Duration window) {
+        return Math.max(window.toNanos(), span) / 1e9;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    long getRejected() {
+        return rejected;
+    }
+
+    String getFirstError() {
+        return firstError;
+    }
+
+    /**
+     * The nearest rank percentile in milliseconds, 0 when nothing succeeded.
+     */
+    double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return nanos[Math.max(rank, 1) - 1] / 1_000_000.0;
+    }
+}
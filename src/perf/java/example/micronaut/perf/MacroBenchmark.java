@@ -0,0 +1,138 @@
+package example.micronaut.perf;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Drives every route of a running application at a fixed concurrency, one route at a time, and reports throughput
+ * and latency percentiles against the size of the catalogue it finds in the database. Each route is warmed up
+ * first and only the measured window is reported. Closed loop: every client sends its next request as soon as the
+ * last one returns, so throughput is what the concurrency can get through and latencies include no queueing in
+ * the driver.
+ * <p>
+ * Run it once per data size, with the application restarted after each ./gradlew generateData, and the report
+ * file collects the sizes side by side.
+ */
+public final class MacroBenchmark {
+
+    private MacroBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        int concurrency = options.getInt("concurrency", 16);
+        Duration warmup = options.getDuration("warmup", Duration.ofSeconds(5));
+        Duration duration = options.getDuration("duration", Duration.ofSeconds(20));
+        int sampleSize = options.getInt("samples", 1000);
+        boolean writes = options.getBoolean("writes", true);
+        Set<String> only = Set.copyOf(options.getList("routes"));
+        Database database = options.database();
+        String baseUrl = options.get("base-url", "http://localhost:8080");
+        Client client = new Client(baseUrl, options.getDuration("timeout", Duration.ofMinutes(2)));
+
+        List<Route> routes = Routes.all().stream()
+                .filter(route -> only.isEmpty() || only.contains(route.getName()))
+                .filter(route -> writes || !route.isWrite())
+                .collect(Collectors.toList());
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("No routes selected, the routes are " +
+                    Routes.all().stream().map(Route::getName).collect(Collectors.joining(",")));
+        }
+
+        DataSize size = database.size();
+        System.out.printf("Benchmarking %s against %s, %d clients, %s warmup and %s per route%n",
+                baseUrl, size, concurrency, warmup, duration);
+        Report report = new Report(Path.of(options.get("report", "build/reports/macro/results.csv")), Instant.now(), size);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            for (Route route : routes) {
+                Samples samples = Samples.load(database, sampleSize);
+                int clients = route.isBulk() ? 1 : concurrency;
+                Latencies latencies = run(executor, client, samples, route, clients, warmup, duration);
+                report.add(route, clients, latencies.seconds(duration), latencies);
+            }
+        } finally {
+            executor.shutdownNow();
+            client.cleanUp();
+        }
+        report.write();
+    }
+
+    private static Latencies run(ExecutorService executor, Client client, Samples samples, Route route, int clients,
+                                 Duration warmup, Duration duration) throws Exception {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureUntil = measureFrom + duration.toNanos();
+        List<Future<Latencies>> workers = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            workers.add(executor.submit(() -> work(client, samples, route, measureFrom, measureUntil)));
+        }
+        Latencies latencies = new Latencies();
+        for (Future<Latencies> worker : workers) {
+            latencies.merge(worker.get());
+        }
+        return latencies.sorted();
+    }
+
+    // requests that start in the window are counted even when they end after it, so a bulk route slower than the
+    // window still reports, and the window is stretched to match
+    private static Latencies work(Client client, Samples samples, Route route, long measureFrom, long measureUntil) throws Exception {
+        Latencies latencies = new Latencies();
+        Route.Exchange exchange = route.getExchange();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // bulk bodies are read in full, so the time covers the whole transfer, but not kept
+        HttpResponse.BodyHandler<String> handler = route.isBulk()
+                ? HttpResponse.BodyHandlers.replacing("")
+                : HttpResponse.BodyHandlers.ofString();
+        while (System.nanoTime() < measureUntil) {
+            HttpRequest request;
+            try {
+                request = exchange.request(client, samples, random);
+            } catch (IOException e) {
+                // the book or genre a delete needs could not be created, most likely shed by admission control
+                if (System.nanoTime() >= measureFrom) {
+                    latencies.rejected();
+                }
+                continue;
+            }
+            long start = System.nanoTime();
+            HttpResponse<String> response;
+            try {
+                response = client.send(request, handler);
+            } catch (IOException e) {
+                if (start >= measureFrom) {
+                    latencies.error(request.method() + " " + request.uri().getPath() + ": " + e);
+                }
+                continue;
+            }
+            long end = System.nanoTime();
+            exchange.completed(client, samples, request, response);
+            if (start < measureFrom) {
+                continue;
+            }
+            int status = response.statusCode();
+            if (status < 300 || status == 304) {
+                latencies.ok(end - start, end - measureFrom);
+            } else if (status == 503) {
+                latencies.rejected();
+            } else {
+                latencies.error(request.method() + " " + request.uri().getPath() + ": " + status + " " + abbreviate(response.body()));
+            }
+        }
+        return latencies;
+    }
+
+    private static String abbreviate(String body) {
+        return body.length() > 200 ? body.substring(0, 200) + "..." : body;
+    }
+}
@@ -0,0 +1,92 @@
+package example.micronaut.perf;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line options of the form --name=value, passed with ./gradlew task --args="...".
+ */
+final class Options {
+
+    private final Map<String, String> values;
+
+    private Options(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static Options parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return new Options(values);
+    }
+
+    String get(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+    }
+
+    long getLong(String name, long defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Long.parseLong(value.replace("_", ""));
+    }
+
+    double getDouble(String name, double defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    boolean getBoolean(String name, boolean defaultValue) {
+        String value = values.get(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+
+    /**
+     * A duration in seconds, or with an ms, s or m suffix.
+     */
+    Duration getDuration(String name, Duration defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+
+    /**
+     * A comma separated list, empty when the option is missing.
+     */
+    List<String> getList(String name) {
+        String value = values.get(name);
+        return value == null || value.isBlank() ? List.of() : List.of(value.split(","));
+    }
+
+    /**
+     * The JDBC settings shared by the generator and the benchmark driver, the docker compose database by default.
+     */
+    Database database() {
+        return new Database(get("url", "jdbc:postgresql://localhost:5434/postgres"),
+                get("username", "hibreac"),
+                get("password", "hibreac"));
+    }
+}
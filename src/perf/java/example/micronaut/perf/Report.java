@@ -0,0 +1,98 @@
+package example.micronaut.perf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Prints the results of a run and appends them to a CSV file that collects runs against different data sizes,
+ * then prints throughput and p99 of every route at each size found in that file so a route that stops scaling
+ * stands out.
+ */
+final class Report {
+
+    private static final String HEADER = "started,books,genres,links,route,concurrency,requests,errors,rejected,throughput,p50_ms,p90_ms,p99_ms,p999_ms,max_ms";
+
+    private final Path file;
+    private final Instant started;
+    private final DataSize size;
+    private final List<String> rows = new ArrayList<>();
+
+    Report(Path file, Instant started, DataSize size) {
+        this.file = file;
+        this.started = started;
+        this.size = size;
+    }
+
+    void add(Route route, int concurrency, double seconds, Latencies latencies) {
+        double throughput = latencies.count() / seconds;
+        System.out.printf(Locale.ROOT, "%-22s %4d %10.1f/s  p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f ms  errors %d  rejected %d%n",
+                route.getName(), concurrency, throughput,
+                latencies.percentileMillis(50), latencies.percentileMillis(90), latencies.percentileMillis(99),
+                latencies.percentileMillis(99.9), latencies.percentileMillis(100), latencies.getErrors(), latencies.getRejected());
+        if (latencies.getFirstError() != null) {
+            System.out.println("    first error: " + latencies.getFirstError());
+        }
+        rows.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%s,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                started, size.getBooks(), size.getGenres(), size.getLinks(), route.getName(), concurrency,
+                latencies.count(), latencies.getErrors(), latencies.getRejected(), throughput,
+                latencies.percentileMillis(50), latencies.percentileMillis(90), latencies.percentileMillis(99),
+                latencies.percentileMillis(99.9), latencies.percentileMillis(100)));
+    }
+
+    void write() throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(file)) {
+            lines.add(HEADER);
+        }
+        lines.addAll(rows);
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        System.out.println("Appended " + rows.size() + " results to " + file);
+        printScaling();
+    }
+
+    // the latest result of each route at each book count
+    private void printScaling() throws IOException {
+        Map<Long, Map<String, String[]>> bySize = new TreeMap<>();
+        Set<String> routes = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            if (line.equals(HEADER) || line.isBlank()) {
+                continue;
+            }
+            String[] columns = line.split(",");
+            routes.add(columns[4]);
+            bySize.computeIfAbsent(Long.parseLong(columns[1]), books -> new LinkedHashMap<>()).put(columns[4], columns);
+        }
+        if (bySize.size() < 2) {
+            return;
+        }
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-22s", "req/s | p99 ms"));
+        bySize.keySet().forEach(books -> header.append(String.format(Locale.ROOT, " %22s", books + " books")));
+        System.out.println();
+        System.out.println(header);
+        for (String route : routes) {
+            StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%-22s", route));
+            for (Map<String, String[]> results : bySize.values()) {
+                String[] columns = results.get(route);
+                row.append(columns == null
+                        ? String.format(Locale.ROOT, " %22s", "-")
+                        : String.format(Locale.ROOT, " %10s | %9s", columns[9], columns[12]));
+            }
+            System.out.println(row);
+        }
+    }
+}
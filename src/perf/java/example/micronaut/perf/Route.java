@@ -0,0 +1,64 @@
+package example.micronaut.perf;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One endpoint under load. Only the request built by the exchange is timed, any setup it needs happens before.
+ */
+final class Route {
+
+    /**
+     * Builds the next request, and sees its response, outside the timed section.
+     */
+    interface Exchange {
+
+        HttpRequest request(Client client, Samples samples, ThreadLocalRandom random) throws Exception;
+
+        default void completed(Client client, Samples samples, HttpRequest request, HttpResponse<String> response) {}
+    }
+
+    private final String name;
+    private final boolean write;
+    private final boolean bulk;
+    private final Exchange exchange;
+
+    private Route(String name, boolean write, boolean bulk, Exchange exchange) {
+        this.name = name;
+        this.write = write;
+        this.bulk = bulk;
+        this.exchange = exchange;
+    }
+
+    static Route read(String name, Exchange exchange) {
+        return new Route(name, false, false, exchange);
+    }
+
+    static Route write(String name, Exchange exchange) {
+        return new Route(name, true, false, exchange);
+    }
+
+    /**
+     * A route that touches the whole catalogue, run by one client at a time and with the body discarded.
+     */
+    static Route bulk(String name, boolean write, Exchange exchange) {
+        return new Route(name, write, true, exchange);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    boolean isWrite() {
+        return write;
+    }
+
+    boolean isBulk() {
+        return bulk;
+    }
+
+    Exchange getExchange() {
+        return exchange;
+    }
+}
@@ -0,0 +1,197 @@
+package example.micronaut.perf;
+
+import example.micronaut.controllers.BookCursor;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Every BookController and GenreController route, in the order the driver runs them. Writes put back what they
+ * change where they can, updates send the current values and deletes only remove what the save routes created.
+ */
+final class Routes {
+
+    private static final int IDS = 10;
+    private static final int PAGE = 100;
+    private static final int IMPORT_BOOKS = 100;
+
+    private Routes() {}
+
+    static List<Route> all() {
+        return List.of(
+                Route.read("books.ids", (client, samples, random) ->
+                        client.get("/books?ids=" + ids(() -> samples.book(random).id))),
+                Route.read("books.show", (client, samples, random) ->
+                        client.get("/books/" + samples.book(random).id)),
+                Route.read("books.list", (client, samples, random) ->
+                        client.get("/books/list?after=" + BookCursor.encode(samples.book(random).id) + "&limit=" + PAGE)),
+                Route.read("books.search", (client, samples, random) ->
+                        client.get("/books/search?q=" + encode(samples.book(random).name.split(" ")[0]) + "&limit=20")),
+                Route.read("books.filter", (client, samples, random) -> {
+                    Samples.SampleBook book = samples.book(random);
+                    String query = book.genreIds.isEmpty()
+                            ? "any=" + samples.genre(random).id
+                            : "all=" + book.genreIds.get(0) + "&none=" + samples.genre(random).id;
+                    return client.get("/books/filter?" + query + "&limit=" + PAGE);
+                }),
+                Route.read("books.filter.stats", (client, samples, random) -> client.get("/books/filter/stats")),
+                Route.read("books.cache", (client, samples, random) -> client.get("/books/cache")),
+                Route.read("genres.ids", (client, samples, random) ->
+                        client.get("/genres?ids=" + ids(() -> samples.genre(random).id))),
+                Route.read("genres.show", (client, samples, random) ->
+                        client.get("/genres/" + samples.genre(random).id)),
+                Route.read("genres.books", (client, samples, random) ->
+                        client.get("/genres/" + samples.genre(random).id + "/books?limit=" + PAGE)),
+                Route.read("genres.list", (client, samples, random) ->
+                        client.get("/genres/list?size=" + PAGE + "&page=" + random.nextInt(10))),
+                Route.read("genres.stats", (client, samples, random) -> client.get("/genres/stats")),
+                Route.read("genres.cache", (client, samples, random) -> client.get("/genres/cache")),
+
+                Route.write("books.save", new Route.Exchange() {
+                    @Override
+                    public HttpRequest request(Client client, Samples samples, ThreadLocalRandom random) {
+                        return client.json("POST", "/books", Json.bookCommand(null, Json.uniqueName("macro book"),
+                                List.of(samples.genre(random).id.toString(), samples.genre(random).id.toString())));
+                    }
+
+                    @Override
+                    public void completed(Client client, Samples samples, HttpRequest request, HttpResponse<String> response) {
+                        Client.created(response).ifPresent(client::bookCreated);
+                    }
+                }),
+                Route.write("books.batch", new Route.Exchange() {
+                    @Override
+                    public HttpRequest request(Client client, Samples samples, ThreadLocalRandom random) {
+                        String commands = Stream.generate(() -> Json.bookCommand(null, Json.uniqueName("macro batch"),
+                                        List.of(samples.genre(random).id.toString())))
+                                .limit(IDS)
+                                .collect(Collectors.joining(",", "[", "]"));
+                        return client.json("POST", "/books/batch", commands);
+                    }
+
+                    @Override
+                    public void completed(Client client, Samples samples, HttpRequest request, HttpResponse<String> response) {
+                        if (response.statusCode() == 200) {
+                            Json.ids(response.body()).forEach(client::bookCreated);
+                        }
+                    }
+                }),
+                Route.write("books.update", (client, samples, random) -> {
+                    Samples.SampleBook book = samples.book(random);
+                    return client.json("PUT", "/books", Json.bookCommand(book.id, book.name, book.genreIdStrings()));
+                }),
+                Route.write("books.update.genres", (client, samples, random) -> {
+                    Samples.SampleBook book = samples.book(random);
+                    return client.json("PATCH", "/books", Json.bookCommand(book.id, book.name, book.genreIdStrings()));
+                }),
+                Route.write("books.rename", new Route.Exchange() {
+                    @Override
+                    public HttpRequest request(Client client, Samples samples, ThreadLocalRandom random) {
+                        Samples.SampleBook book = samples.book(random);
+                        return client.json("PUT", "/books/" + book.id + "/name",
+                                Json.object("name", Json.string(book.name), "version", Long.toString(samples.version(book.id))));
+                    }
+
+                    @Override
+                    public void completed(Client client, Samples samples, HttpRequest request, HttpResponse<String> response) {
+                        if (response.statusCode() == 204) {
+                            samples.renamed(UUID.fromString(request.uri().getPath().split("/")[2]));
+                        }
+                    }
+                }),
+                Route.write("books.delete", (client, samples, random) ->
+                        client.request("/books/" + client.takeBook(samples, random)).DELETE().build()),
+                Route.write("books.delete.bulk", (client, samples, random) -> {
+                    List<String> ids = new ArrayList<>(IDS);
+                    for (int i = 0; i < IDS; i++) {
+                        ids.add(client.takeBook(samples, random).toString());
+                    }
+                    return client.json("POST", "/books/delete", Json.object("ids", Json.array(ids)));
+                }),
+                Route.write("genres.save", new Route.Exchange() {
+                    @Override
+                    public HttpRequest request(Client client, Samples samples, ThreadLocalRandom random) {
+                        return client.json("POST", "/genres", Json.object("name", Json.string(Json.uniqueName("macro genre"))));
+                    }
+
+                    @Override
+                    public void completed(Client client, Samples samples, HttpRequest request, HttpResponse<String> response) {
+                        Client.created(response).ifPresent(client::genreCreated);
+                    }
+                }),
+                // the body is the bare name, not a JSON document
+                Route.write("genres.save.ex", new Route.Exchange() {
+                    @Override
+                    public HttpRequest request(Client client, Samples samples, ThreadLocalRandom random) {
+                        return client.json("POST", "/genres/ex", Json.uniqueName("macro genre"));
+                    }
+
+                    @Override
+                    public void completed(Client client, Samples samples, HttpRequest request, HttpResponse<String> response) {
+                        Client.created(response).ifPresent(client::genreCreated);
+                    }
+                }),
+                Route.write("genres.update", (client, samples, random) -> {
+                    Samples.SampleGenre genre = samples.genre(random);
+                    return client.json("PUT", "/genres", Json.object("id", Json.string(genre.id.toString()), "name", Json.string(genre.name)));
+                }),
+                Route.write("genres.delete", (client, samples, random) ->
+                        client.request("/genres/" + client.takeGenre()).DELETE().build()),
+                Route.write("genres.delete.bulk", (client, samples, random) -> {
+                    List<String> ids = new ArrayList<>(IDS);
+                    for (int i = 0; i < IDS; i++) {
+                        ids.add(client.takeGenre().toString());
+                    }
+                    return client.json("POST", "/genres/delete", Json.object("ids", Json.array(ids)));
+                }),
+
+                Route.bulk("books.stream", false, (client, samples, random) ->
+                        client.request("/books/stream?chunkSize=5000").setHeader("Accept", "application/x-json-stream").GET().build()),
+                Route.bulk("books.export.csv", false, (client, samples, random) ->
+                        client.request("/books/export?format=csv").setHeader("Accept", "text/csv").GET().build()),
+                Route.bulk("books.export.ndjson", false, (client, samples, random) ->
+                        client.request("/books/export?format=ndjson").setHeader("Accept", "application/x-ndjson").GET().build()),
+                // re-imports sampled books as they are, the merge and the cache and index rebuild still run in full
+                Route.bulk("books.import", true, (client, samples, random) ->
+                        client.request("/books/import")
+                                .header("Content-Type", "text/csv")
+                                .POST(HttpRequest.BodyPublishers.ofString(importCsv(samples, random)))
+                                .build()));
+    }
+
+    private static String ids(Supplier<UUID> id) {
+        return Stream.generate(id).limit(IDS).map(UUID::toString).distinct().collect(Collectors.joining(","));
+    }
+
+    private static String importCsv(Samples samples, ThreadLocalRandom random) {
+        StringBuilder csv = new StringBuilder("book_id,book_name,genre_id,genre_name\n");
+        for (int i = 0; i < IMPORT_BOOKS; i++) {
+            Samples.SampleBook book = samples.book(random);
+            if (book.genreIds.isEmpty()) {
+                csv.append(book.id).append(',').append(csvField(book.name)).append(",,\n");
+            }
+            for (int g = 0; g < book.genreIds.size(); g++) {
+                csv.append(book.id).append(',').append(csvField(book.name)).append(',')
+                        .append(book.genreIds.get(g)).append(',').append(csvField(book.genreNames.get(g))).append('\n');
+            }
+        }
+        return csv.toString();
+    }
+
+    private static String csvField(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,113 @@
+package example.micronaut.perf;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Random books and genres the routes pick their ids and bodies from, read straight from the database. Reloaded
+ * before every route, so the versions are those the previous routes left behind.
+ */
+final class Samples {
+
+    private static final String BOOKS = "select b.id, b.name, b.version, " +
+            "array_remove(array_agg(g.id order by g.id), null), array_remove(array_agg(g.name order by g.id), null) " +
+            "from (select id, name, version from book order by random() limit ?) b " +
+            "left join book_genre bg on bg.book_id = b.id left join genre g on g.id = bg.genre_id group by b.id, b.name, b.version";
+
+    private static final String GENRES = "select id, name from genre order by random() limit ?";
+
+    private final List<SampleBook> books;
+    private final List<SampleGenre> genres;
+    private final Map<UUID, Long> versions = new ConcurrentHashMap<>();
+
+    private Samples(List<SampleBook> books, List<SampleGenre> genres) {
+        this.books = books;
+        this.genres = genres;
+        books.forEach(book -> versions.put(book.id, book.version));
+    }
+
+    static Samples load(Database database, int size) throws SQLException {
+        List<SampleBook> books = new ArrayList<>(size);
+        List<SampleGenre> genres = new ArrayList<>(size);
+        try (Connection connection = database.connect()) {
+            try (PreparedStatement statement = connection.prepareStatement(BOOKS)) {
+                statement.setInt(1, size);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        books.add(new SampleBook(rows.getObject(1, UUID.class), rows.getString(2), rows.getLong(3),
+                                List.of((UUID[]) rows.getArray(4).getArray()), List.of((String[]) rows.getArray(5).getArray())));
+                    }
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(GENRES)) {
+                statement.setInt(1, size);
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        genres.add(new SampleGenre(rows.getObject(1, UUID.class), rows.getString(2)));
+                    }
+                }
+            }
+        }
+        if (books.isEmpty() || genres.isEmpty()) {
+            throw new IllegalStateException("The benchmark database needs books and genres, run ./gradlew generateData first");
+        }
+        return new Samples(books, genres);
+    }
+
+    SampleBook book(ThreadLocalRandom random) {
+        return books.get(random.nextInt(books.size()));
+    }
+
+    SampleGenre genre(ThreadLocalRandom random) {
+        return genres.get(random.nextInt(genres.size()));
+    }
+
+    long version(UUID bookId) {
+        return versions.get(bookId);
+    }
+
+    void renamed(UUID bookId) {
+        versions.merge(bookId, 1L, Long::sum);
+    }
+
+    static final class SampleBook {
+
+        final UUID id;
+        final String name;
+        final long version;
+        final List<UUID> genreIds;
+        final List<String> genreNames;
+
+        SampleBook(UUID id, String name, long version, List<UUID> genreIds, List<String> genreNames) {
+            this.id = id;
+            this.name = name;
+            this.version = version;
+            this.genreIds = genreIds;
+            this.genreNames = genreNames;
+        }
+
+        List<String> genreIdStrings() {
+            return genreIds.stream().map(UUID::toString).collect(Collectors.toList());
+        }
+    }
+
+    static final class SampleGenre {
+
+        final UUID id;
+        final String name;
+
+        SampleGenre(UUID id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
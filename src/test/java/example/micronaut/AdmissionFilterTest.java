@@ -0,0 +1,90 @@
+package example.micronaut;
+
+import example.micronaut.filters.AdmissionConfiguration;
+import example.micronaut.filters.AdmissionFilter;
+import example.micronaut.filters.GradientLimiter;
+import example.micronaut.filters.PoolQueueDepth;
+import example.micronaut.filters.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AdmissionFilterTest {
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Inject
+    GradientLimiter limiter;
+
+    // the slots are taken here directly, as concurrent requests in flight would take them
+    @Test
+    public void testWritesAreShedBeforeReads() {
+        int taken = 0;
+        while (limiter.tryAcquire(Priority.WRITE)) {
+            taken++;
+        }
+        try {
+            HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                    httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Shed"))));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatus());
+            assertEquals("1", thrown.getResponse().header(HttpHeaders.RETRY_AFTER));
+
+            HttpResponse<?> response = httpClient.toBlocking().exchange(HttpRequest.GET("/genres/list"));
+            assertEquals(HttpStatus.OK, response.getStatus());
+        } finally {
+            for (int i = 0; i < taken; i++) {
+                limiter.release();
+            }
+        }
+    }
+
+    @Test
+    public void testLongExportDoesNotShrinkTheLimit() throws Exception {
+        GradientLimiter exportLimiter = new GradientLimiter(new AdmissionConfiguration());
+        assertEquals(20, slowRequest(exportLimiter, "/books/export"));
+        assertEquals(1, exportLimiter.getAdmitted(Priority.BULK));
+
+        // the same latency on an ordinary read does shrink it
+        GradientLimiter listLimiter = new GradientLimiter(new AdmissionConfiguration());
+        assertTrue(slowRequest(listLimiter, "/books/list") < 20);
+    }
+
+    // one fast sample sets the long term latency, then a request many times slower completes while the limit is in use
+    private static int slowRequest(GradientLimiter limiter, String path) throws Exception {
+        assertTrue(limiter.tryAcquire(Priority.READ));
+        limiter.release(Duration.ofMillis(1).toNanos(), 0);
+
+        AdmissionFilter filter = new AdmissionFilter(limiter, new PoolQueueDepth(new SimpleMeterRegistry()), new AdmissionConfiguration());
+        Sinks.One<MutableHttpResponse<?>> response = Sinks.one();
+        CompletableFuture<MutableHttpResponse<?>> slow = Mono.from(filter.doFilter(HttpRequest.GET(path), request -> response.asMono())).toFuture();
+        for (int i = 0; i < 15; i++) {
+            assertTrue(limiter.tryAcquire(Priority.READ));
+        }
+        Thread.sleep(50);
+        response.tryEmitValue(HttpResponse.ok());
+        assertEquals(HttpStatus.OK, slow.get().getStatus());
+        return limiter.getLimit();
+    }
+}
@@ -0,0 +1,142 @@
+package example.micronaut;
+
+import example.micronaut.codecs.BinaryMediaTypes;
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.BookUpdateCommand;
+import example.micronaut.commands.GenreUpdateCommand;
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import example.micronaut.responses.CacheStats;
+import example.micronaut.services.BookCache;
+import example.micronaut.services.BookService;
+import example.micronaut.services.CachedBook;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "books.cache.enabled", value = "true")
+public class BookCacheTest {
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Inject
+    BookService bookService;
+
+    @Test
+    public void testShowIsCachedAndEvictedOnUpdate() {
+        UUID bookId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Cached", Set.of()))), "/books/");
+
+        assertEquals("Cached", show(bookId).getName());
+        long hits = stats().getHits();
+        assertEquals("Cached", show(bookId).getName());
+        assertTrue(stats().getHits() > hits, "second read should be served from the cache");
+
+        BookUpdateCommand command = new BookUpdateCommand();
+        command.setId(bookId);
+        command.setName("Cached and updated");
+        command.setGenres(Set.of());
+        httpClient.toBlocking().exchange(HttpRequest.PUT("/books", command));
+        assertEquals("Cached and updated", show(bookId).getName());
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+    }
+
+    @Test
+    public void testShowIsEvictedOnGenreRename() {
+        UUID genreId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Cached genre"))), "/genres/");
+        UUID bookId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Cached with genre", Set.of(genreId)))), "/books/");
+
+        assertEquals("Cached genre", genreName(show(bookId)));
+        assertEquals("Cached genre", genreName(show(bookId)));
+
+        httpClient.toBlocking().exchange(HttpRequest.PUT("/genres", new GenreUpdateCommand(genreId, "Cached genre renamed")));
+        assertEquals("Cached genre renamed", genreName(show(bookId)));
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + genreId));
+    }
+
+    // the cache holds JSON only, binary encodings go to the database every time
+    @Test
+    public void testBinaryShowBypassesTheCache() {
+        UUID bookId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Cached binary", Set.of()))), "/books/");
+        show(bookId);
+        CacheStats before = stats();
+
+        HttpResponse<Book> response = httpClient.toBlocking().exchange(HttpRequest.GET("/books/" + bookId)
+                .accept(BinaryMediaTypes.APPLICATION_CBOR_TYPE), Book.class);
+        assertEquals(BinaryMediaTypes.APPLICATION_CBOR_TYPE, response.getContentType().orElse(null));
+        assertEquals("Cached binary", response.body().getName());
+        assertNotNull(response.header(HttpHeaders.ETAG));
+
+        CacheStats after = stats();
+        assertEquals(before.getHits(), after.getHits());
+        assertEquals(before.getMisses(), after.getMisses());
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+    }
+
+    // the update's eviction lands after the load read the book, and a second request joins the load afterwards
+    @Test
+    public void testLoadInFlightDuringAnUpdateIsNotCached() throws Exception {
+        UUID bookId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Cached in flight", Set.of()))), "/books/");
+        BookCache cache = bookService.getCache();
+        List<CompletableFuture<CachedBook>> joined = new ArrayList<>();
+
+        CachedBook loaded = bookService.findCachedById(bookId, book -> {
+            cache.evict(bookId);
+            joined.add(bookService.findCachedById(bookId, this::encode).toFuture());
+            return encode(book);
+        }).block();
+
+        assertNotNull(loaded);
+        assertEquals(1, joined.size());
+        assertSame(loaded, joined.get(0).get());
+        assertNull(cache.get(bookId), "a load that started before the eviction must not be cached");
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+    }
+
+    private Book show(UUID bookId) {
+        return httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+    }
+
+    private CacheStats stats() {
+        return httpClient.toBlocking().retrieve(HttpRequest.GET("/books/cache"), CacheStats.class);
+    }
+
+    private CachedBook encode(Book book) {
+        return new CachedBook(book.getName().getBytes(StandardCharsets.UTF_8), Long.toString(book.getVersion()), Set.of());
+    }
+
+    private static String genreName(Book book) {
+        return book.getGenres().stream().map(Genre::getName).findFirst().orElse(null);
+    }
+
+    private UUID entityId(HttpResponse<?> response, String path) {
+        String value = response.header(HttpHeaders.LOCATION);
+        assertNotNull(value);
+        return UUID.fromString(value.substring(value.indexOf(path) + path.length()));
+    }
+}
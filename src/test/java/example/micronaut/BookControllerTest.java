@@ -1,17 +1,32 @@
 package example.micronaut;
 
+import example.micronaut.codecs.BinaryMediaTypes;
 import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.BookDeleteCommand;
+import example.micronaut.commands.BookRenameCommand;
 import example.micronaut.commands.BookUpdateCommand;
+import example.micronaut.commands.GenreDeleteCommand;
+import example.micronaut.commands.GenreUpdateCommand;
+import example.micronaut.controllers.BookCursor;
 import example.micronaut.domain.Book;
 import example.micronaut.domain.Genre;
+import example.micronaut.responses.BookBatchResult;
+import example.micronaut.responses.BulkDeleteResult;
+import example.micronaut.responses.GenreBookCount;
+import example.micronaut.responses.ImportResult;
+import example.micronaut.services.CatalogueFormat;
 import example.micronaut.services.GenreRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.micronaut.core.type.Argument;
 import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.client.HttpClient;
 import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
 import io.micronaut.http.hateoas.JsonError;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
@@ -34,6 +49,9 @@ public class BookControllerTest {
     @Inject
     GenreRepository genreRepository;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
     @Test
     public void testBookCrudOperations() {
         String progGenre = "Programming";
@@ -156,10 +174,340 @@ public class BookControllerTest {
         System.out.println(fetchedBook);
 
         assertEquals( totalGenres , genreRepository.count().block() );
+        assertEquals( totalGenres, fetchedBook.getGenres().size());
+
+        // The book is listed under each of its genres
+        request = HttpRequest.GET("/genres/" + threads.getId() + "/books");
+        List<Book> threadBooks = httpClient.toBlocking().retrieve(request, Argument.listOf(Book.class));
+        assertTrue(threadBooks.stream().anyMatch(b -> b.getId().equals(bookId)), "Book is not listed under its genre");
+
+        // The genre counts followed every change of the book's genres
+        request = HttpRequest.GET("/genres/stats");
+        List<GenreBookCount> stats = httpClient.toBlocking().retrieve(request, Argument.listOf(GenreBookCount.class));
+        for (Genre g : genres) {
+            GenreBookCount count = stats.stream().filter(c -> c.getId().equals(g.getId())).findFirst().orElse(null);
+            assertNotNull(count, g.getName() + " has no book count");
+            assertEquals(1, count.getBooks());
+        }
+    }
+
+    @Test
+    public void testListIsKeysetPaginated() {
+        List<UUID> bookIds = new ArrayList<>();
+        for (String name : List.of("Paging one", "Paging two")) {
+            HttpResponse<?> response = httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand(name, Set.of())));
+            assertEquals(HttpStatus.CREATED, response.getStatus());
+            bookIds.add(entityId(response, "/books/"));
+        }
+
+        HttpResponse<List<Book>> first = httpClient.toBlocking().exchange(HttpRequest.GET("/books/list?limit=1"), Argument.listOf(Book.class));
+        assertEquals(1, first.body().size());
+        String next = first.header(HttpHeaders.LINK);
+        assertNotNull(next, "first page should link to the next one");
+
+        String nextUri = next.substring(next.indexOf('<') + 1, next.indexOf('>'));
+        HttpResponse<List<Book>> second = httpClient.toBlocking().exchange(HttpRequest.GET(nextUri), Argument.listOf(Book.class));
+        assertEquals(1, second.body().size());
+        assertTrue(first.body().get(0).getId().toString().compareTo(second.body().get(0).getId().toString()) < 0);
+
+        HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.GET("/books/list?after=not-a-cursor")));
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatus());
+
+        for (UUID bookId : bookIds) {
+            assertEquals(HttpStatus.NO_CONTENT, httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId)).getStatus());
+        }
+    }
+
+    @Test
+    public void testOperationsCountRepositoryCallsAndTransactions() throws InterruptedException {
+        UUID bookId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Counted", Set.of()))), "/books/");
+
+        double calls = recorded("service.repository.calls", "list");
+        double transactions = recorded("service.transactions", "list");
+        httpClient.toBlocking().exchange(HttpRequest.GET("/books/list?limit=1"), Argument.listOf(Book.class));
+        // the page's ids and then its books, read in one session without a transaction
+        assertRecorded("service.repository.calls", "list", calls + 2);
+        assertRecorded("service.transactions", "list", transactions);
+
+        calls = recorded("service.repository.calls", "deleteById");
+        transactions = recorded("service.transactions", "deleteById");
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+        // read model row, genre counts and book, in one transaction
+        assertRecorded("service.repository.calls", "deleteById", calls + 3);
+        assertRecorded("service.transactions", "deleteById", transactions + 1);
+    }
+
+    @Test
+    public void testConditionalRename() {
+        UUID bookId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Before", Set.of()))), "/books/");
+        long version = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class).getVersion();
+
+        HttpResponse<?> response = httpClient.toBlocking().exchange(
+                HttpRequest.PUT("/books/" + bookId + "/name", new BookRenameCommand("After", version)));
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+        Book renamed = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals("After", renamed.getName());
+        assertEquals(version + 1, renamed.getVersion());
+
+        HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.PUT("/books/" + bookId + "/name", new BookRenameCommand("Stale", version))));
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
+
+        thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.PUT("/books/" + UUID.randomUUID() + "/name", new BookRenameCommand("Missing", 0))));
+        assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
+
+        // book names are unique
+        UUID otherId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Taken", Set.of()))), "/books/");
+        thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.PUT("/books/" + bookId + "/name", new BookRenameCommand("Taken", version + 1))));
+        assertEquals(HttpStatus.CONFLICT, thrown.getStatus());
+        assertEquals("After", httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class).getName());
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + otherId));
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+    }
+
+    @Test
+    public void testImportAndExport() {
+        UUID genreId = UUID.randomUUID();
+        UUID firstId = UUID.randomUUID();
+        UUID secondId = UUID.randomUUID();
+        String csv = "book_id,book_name,genre_id,genre_name\n" +
+                firstId + ",Imported one," + genreId + ",Imported\n" +
+                secondId + ",\"Imported, two\",,\n";
+
+        ImportResult result = httpClient.toBlocking().retrieve(
+                HttpRequest.POST("/books/import", csv).contentType(CatalogueFormat.TEXT_CSV), ImportResult.class);
+        assertEquals(2, result.getBooks());
+        assertEquals(1, result.getGenres());
+        assertEquals(1, result.getLinks());
+
+        Book first = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + firstId), Book.class);
+        assertEquals("Imported one", first.getName());
+        assertEquals(Set.of(genreId), first.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+        Book second = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + secondId), Book.class);
+        assertEquals("Imported, two", second.getName());
+        assertTrue(second.getGenres().isEmpty());
+
+        String exported = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/export?format=csv").accept(CatalogueFormat.TEXT_CSV));
+        assertTrue(exported.startsWith("book_id,book_name,genre_id,genre_name"));
+        assertTrue(exported.contains(firstId + ",Imported one," + genreId + ",Imported"));
+        String ndjson = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/export?format=ndjson").accept(CatalogueFormat.APPLICATION_NDJSON));
+        assertTrue(ndjson.lines().anyMatch(line -> line.contains(secondId.toString()) && line.contains("Imported, two")));
+
+        HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.POST("/books/import", "book_id,book_name,genre_id,genre_name\nnot-a-uuid,Broken,,\n")
+                        .contentType(CatalogueFormat.TEXT_CSV)));
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatus());
+
+        httpClient.toBlocking().exchange(HttpRequest.POST("/books/delete", new BookDeleteCommand(Set.of(firstId, secondId), null)));
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + genreId));
+    }
+
+    @Test
+    public void testFindAllByIds() {
+        List<UUID> bookIds = new ArrayList<>();
+        for (String name : List.of("Ids one", "Ids two")) {
+            bookIds.add(entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand(name, Set.of()))), "/books/"));
+        }
+
+        String ids = bookIds.get(1) + "," + UUID.randomUUID() + "," + bookIds.get(0);
+        List<Book> books = httpClient.toBlocking().retrieve(HttpRequest.GET("/books?ids=" + ids), Argument.listOf(Book.class));
+        assertEquals(2, books.size());
+        assertEquals("Ids two", books.get(0).getName());
+        assertEquals("Ids one", books.get(1).getName());
+
+        for (UUID bookId : bookIds) {
+            httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+        }
+    }
+
+    @Test
+    public void testBulkDelete() {
+        UUID genreId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Purged"))), "/genres/");
+        List<UUID> bookIds = new ArrayList<>();
+        for (String name : List.of("Purge one", "Purge two", "Purge three")) {
+            bookIds.add(entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand(name, Set.of(genreId)))), "/books/"));
+        }
+
+        BulkDeleteResult result = httpClient.toBlocking().retrieve(
+                HttpRequest.POST("/books/delete", new BookDeleteCommand(Set.of(bookIds.get(0)), null)), BulkDeleteResult.class);
+        assertEquals(1, result.getBooks());
+        assertEquals(1, result.getLinks());
+
+        result = httpClient.toBlocking().retrieve(
+                HttpRequest.POST("/books/delete", new BookDeleteCommand(null, genreId)), BulkDeleteResult.class);
+        assertEquals(2, result.getBooks());
+        assertEquals(2, result.getLinks());
+        for (UUID bookId : bookIds) {
+            HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                    httpClient.toBlocking().exchange(HttpRequest.GET("/books/" + bookId)));
+            assertEquals(HttpStatus.NOT_FOUND, thrown.getStatus());
+        }
+
+        result = httpClient.toBlocking().retrieve(
+                HttpRequest.POST("/genres/delete", new GenreDeleteCommand(Set.of(genreId))), BulkDeleteResult.class);
+        assertEquals(1, result.getGenres());
+        assertEquals(0, result.getLinks());
+
+        HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.POST("/books/delete", new BookDeleteCommand(null, null))));
+        assertEquals(HttpStatus.BAD_REQUEST, thrown.getStatus());
+    }
+
+    @Test
+    public void testFilterByGenres() {
+        UUID a = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Filter A"))), "/genres/");
+        UUID b = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Filter B"))), "/genres/");
+        UUID x = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Filter X", Set.of(a, b)))), "/books/");
+        UUID y = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Filter Y", Set.of(a)))), "/books/");
+
+        assertEquals(List.of(x), filter("all=" + a + "&all=" + b));
+        assertEquals(Set.of(x, y), new HashSet<>(filter("any=" + a + "&any=" + b)));
+        assertEquals(List.of(y), filter("all=" + a + "&none=" + b));
+
+        HttpResponse<List<Book>> page = httpClient.toBlocking().exchange(
+                HttpRequest.GET("/books/filter?all=" + a + "&limit=1"), Argument.listOf(Book.class));
+        String next = page.header(HttpHeaders.LINK);
+        assertNotNull(next);
+        assertTrue(next.contains("all=" + a));
+
+        httpClient.toBlocking().exchange(HttpRequest.POST("/books/delete", new BookDeleteCommand(Set.of(x, y), null)));
+        assertEquals(List.of(), filter("any=" + a));
+        httpClient.toBlocking().exchange(HttpRequest.POST("/genres/delete", new GenreDeleteCommand(Set.of(a, b))));
+    }
+
+    // the book cache is off here, so the tag is checked against BookRepository.findVersionTagById
+    @Test
+    public void testShowIsConditional() {
+        UUID genreId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Conditional"))), "/genres/");
+        UUID id = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Conditional book", Set.of(genreId)))), "/books/");
+
+        HttpResponse<Book> response = httpClient.toBlocking().exchange(HttpRequest.GET("/books/" + id), Book.class);
+        String etag = response.header(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        for (MediaType mediaType : List.of(MediaType.APPLICATION_JSON_TYPE, BinaryMediaTypes.APPLICATION_CBOR_TYPE)) {
+            response = httpClient.toBlocking().exchange(HttpRequest.GET("/books/" + id)
+                    .accept(mediaType).header(HttpHeaders.IF_NONE_MATCH, etag), Book.class);
+            assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+            assertEquals(etag, response.header(HttpHeaders.ETAG));
+        }
+
+        // the tag covers the genre versions too
+        httpClient.toBlocking().exchange(HttpRequest.PUT("/genres", new GenreUpdateCommand(genreId, "Conditional 2")));
+
+        response = httpClient.toBlocking().exchange(HttpRequest.GET("/books/" + id)
+                .accept(BinaryMediaTypes.APPLICATION_CBOR_TYPE).header(HttpHeaders.IF_NONE_MATCH, etag), Book.class);
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertNotEquals(etag, response.header(HttpHeaders.ETAG));
+        assertEquals("Conditional 2", response.body().getGenres().iterator().next().getName());
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + id));
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + genreId));
+    }
+
+    @Test
+    public void testSmileEncoding() {
+        UUID genreId = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Smile"))), "/genres/");
+
+        List<UUID> ids = new ArrayList<>();
+        for (String name : List.of("Smile one", "Smile two")) {
+            HttpResponse<Book> created = httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand(name, Set.of(genreId)))
+                    .contentType(BinaryMediaTypes.APPLICATION_SMILE_TYPE)
+                    .accept(BinaryMediaTypes.APPLICATION_SMILE_TYPE), Book.class);
+            assertEquals(HttpStatus.CREATED, created.getStatus());
+            assertEquals(BinaryMediaTypes.APPLICATION_SMILE_TYPE, created.getContentType().orElse(null));
+            assertEquals(name, created.body().getName());
+            ids.add(created.body().getId());
+        }
+
+        // a page starting just before the first of them, genre names repeat across the page as Smile back references
+        UUID first = ids.stream().min(Comparator.comparing(UUID::toString)).orElseThrow();
+        HttpResponse<List<Book>> page = httpClient.toBlocking().exchange(HttpRequest.GET("/books/list?limit=1000&after=" + BookCursor.encode(before(first)))
+                .accept(BinaryMediaTypes.APPLICATION_SMILE_TYPE), Argument.listOf(Book.class));
+        assertEquals(BinaryMediaTypes.APPLICATION_SMILE_TYPE, page.getContentType().orElse(null));
+        List<Book> books = page.body().stream().filter(book -> ids.contains(book.getId())).collect(Collectors.toList());
+        assertEquals(2, books.size());
+        for (Book book : books) {
+            assertEquals(List.of("Smile"), book.getGenres().stream().map(Genre::getName).collect(Collectors.toList()));
+        }
+
+        ids.forEach(id -> httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + id)));
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + genreId));
+    }
+
+    @Test
+    public void testBatchSave() {
+        List<BookCreateCommand> commands = List.of(
+                new BookCreateCommand("Batch one", Set.of()),
+                new BookCreateCommand("Batch two", Set.of()));
+
+        List<BookBatchResult> results = httpClient.toBlocking()
+                .retrieve(HttpRequest.POST("/books/batch", commands), Argument.listOf(BookBatchResult.class));
+
+        assertEquals(2, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BookBatchResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertNull(result.getError());
+            Book book = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + result.getId()), Book.class);
+            assertEquals(commands.get(i).getName(), book.getName());
+            httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + result.getId()));
+        }
+    }
+
+    @Test
+    public void testBatchSaveReportsOnlyTheFailedCommand() {
+        HttpResponse<?> response = httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Batch genre")));
+        UUID genreId = entityId(response, "/genres/");
+        List<BookCreateCommand> commands = List.of(
+                new BookCreateCommand("Batch good", Set.of(genreId)),
+                new BookCreateCommand("Batch bad", Set.of(UUID.randomUUID())),
+                new BookCreateCommand("Batch also good", Set.of(genreId)));
+
+        List<BookBatchResult> results = httpClient.toBlocking()
+                .retrieve(HttpRequest.POST("/books/batch", commands), Argument.listOf(BookBatchResult.class));
+
+        assertEquals(3, results.size());
+        assertEquals(List.of(0L, 1L, 2L), results.stream().map(BookBatchResult::getIndex).collect(Collectors.toList()));
+        assertNull(results.get(1).getId());
+        assertEquals("Unknown genre", results.get(1).getError());
+        for (int i : new int[] {0, 2}) {
+            BookBatchResult result = results.get(i);
+            assertNull(result.getError());
+            Book book = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + result.getId()), Book.class);
+            assertEquals(commands.get(i).getName(), book.getName());
+            assertEquals(Set.of(genreId), book.getGenres().stream().map(Genre::getId).collect(Collectors.toSet()));
+            httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + result.getId()));
+        }
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + genreId));
+    }
+
+    // the summaries are recorded once the pipeline terminates, which may be just after the response went out
+    private void assertRecorded(String name, String method, double expected) throws InterruptedException {
+        for (int i = 0; i < 50 && recorded(name, method) < expected; i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, recorded(name, method));
+    }
+
+    private double recorded(String name, String method) {
+        DistributionSummary summary = meterRegistry.find(name).tags("component", "BookService", "method", method).summary();
+        return summary == null ? 0 : summary.totalAmount();
+    }
+
+    private List<UUID> filter(String query) {
+        return httpClient.toBlocking().retrieve(HttpRequest.GET("/books/filter?" + query), Argument.listOf(Book.class))
+                .stream().map(Book::getId).collect(Collectors.toList());
+    }
 
-        // this is failing I think because @Transactional is needed on the BookRepository updateGenres method but then the update fails above with
-        // 'No reactive transaction management has been configured. Ensure you have correctly configured a reactive capable transaction manager'
-        //assertEquals( totalGenres, fetchedBook.getGenres().size());
+    // the id just below the given one in postgres' bytewise uuid order, a cursor that starts a page at that id
+    private static UUID before(UUID id) {
+        long lsb = id.getLeastSignificantBits();
+        return new UUID(lsb == 0 ? id.getMostSignificantBits() - 1 : id.getMostSignificantBits(), lsb - 1);
     }
 
     private Genre findGenre(String genreName, Book book) {
@@ -0,0 +1,81 @@
+package example.micronaut;
+
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.GenreUpdateCommand;
+import example.micronaut.domain.Book;
+import example.micronaut.domain.Genre;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads books from the book_view read model and checks genre renames and deletes reach it.
+ */
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "books.read-model.show", value = "true")
+@Property(name = "books.read-model.list", value = "true")
+public class BookReadModelTest {
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Test
+    public void testGenreRenameAndDeleteReachTheReadModel() {
+        UUID kept = createGenre("Read model kept");
+        UUID renamed = createGenre("Read model renamed");
+        UUID book = entityId(httpClient.toBlocking().exchange(
+                HttpRequest.POST("/books", new BookCreateCommand("Read model book", Set.of(kept, renamed)))), "/books/");
+
+        assertGenres(book, List.of("Read model kept", "Read model renamed"));
+
+        httpClient.toBlocking().exchange(HttpRequest.PUT("/genres", new GenreUpdateCommand(renamed, "Read model also kept")));
+        assertGenres(book, List.of("Read model also kept", "Read model kept"));
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + renamed));
+        assertGenres(book, List.of("Read model kept"));
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + book));
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + kept));
+    }
+
+    // GET /books/{id} and GET /books?ids= both read the book_view row
+    private void assertGenres(UUID book, List<String> names) {
+        Book shown = httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + book), Book.class);
+        assertEquals(names, genreNames(shown));
+        List<Book> listed = httpClient.toBlocking().retrieve(HttpRequest.GET("/books?ids=" + book), Argument.listOf(Book.class));
+        assertEquals(1, listed.size());
+        assertEquals(names, genreNames(listed.get(0)));
+    }
+
+    private static List<String> genreNames(Book book) {
+        return book.getGenres().stream().map(Genre::getName).sorted().collect(Collectors.toList());
+    }
+
+    private UUID createGenre(String name) {
+        return entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", name))), "/genres/");
+    }
+
+    private UUID entityId(HttpResponse<?> response, String path) {
+        String value = response.header(HttpHeaders.LOCATION);
+        assertNotNull(value);
+        return UUID.fromString(value.substring(value.indexOf(path) + path.length()));
+    }
+}
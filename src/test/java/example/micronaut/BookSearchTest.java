@@ -0,0 +1,113 @@
+package example.micronaut;
+
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.domain.Book;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.uri.UriBuilder;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The schema comes from hbm2ddl in tests, so the pg_trgm extension the migrations install is created here. The
+ * trigram index is left out, the search gives the same results without it.
+ */
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class BookSearchTest {
+
+    private static final List<String> NAMES = List.of(
+            "Zyxtrigram",
+            "Zyxtrigram in Action",
+            "Zyxtrigram Cookbook Second Edition",
+            "Search 100% off",
+            "Search snake_case",
+            "Search back\\slash",
+            "Search plain");
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Value("${jpa.default.properties.hibernate.connection.url}")
+    String url;
+
+    @Value("${jpa.default.properties.hibernate.connection.username}")
+    String username;
+
+    @Value("${jpa.default.properties.hibernate.connection.password}")
+    String password;
+
+    final Map<String, UUID> books = new HashMap<>();
+
+    @BeforeAll
+    void createBooks() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url.startsWith("jdbc:") ? url : "jdbc:" + url, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("create extension if not exists pg_trgm");
+        }
+        for (String name : NAMES) {
+            HttpResponse<?> response = httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand(name, Set.of())));
+            String location = response.header(HttpHeaders.LOCATION);
+            books.put(name, UUID.fromString(location.substring(location.lastIndexOf('/') + 1)));
+        }
+    }
+
+    @AfterAll
+    void deleteBooks() {
+        books.values().forEach(id -> httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + id)));
+    }
+
+    @Test
+    public void testBestMatchComesFirst() {
+        assertEquals(List.of("Zyxtrigram", "Zyxtrigram in Action", "Zyxtrigram Cookbook Second Edition"), search("Zyxtrigram"));
+    }
+
+    @Test
+    public void testSimilarNamesAreFound() {
+        List<String> found = search("Zyxtrigran");
+        assertFalse(found.isEmpty());
+        assertEquals("Zyxtrigram", found.get(0));
+    }
+
+    // unescaped, % and _ would match every name and \ would escape the closing wildcard
+    @Test
+    public void testWildcardsInTheQueryMatchThemselves() {
+        assertEquals(List.of("Search 100% off"), search("%"));
+        assertEquals(List.of("Search snake_case"), search("_"));
+        assertEquals(List.of("Search back\\slash"), search("\\"));
+    }
+
+    // only the names created here, other tests share the database
+    private List<String> search(String q) {
+        List<Book> found = httpClient.toBlocking().retrieve(
+                HttpRequest.GET(UriBuilder.of("/books/search").queryParam("q", q).queryParam("limit", 100).build()),
+                Argument.listOf(Book.class));
+        return found.stream()
+                .filter(book -> books.containsValue(book.getId()))
+                .map(Book::getName)
+                .collect(Collectors.toList());
+    }
+}
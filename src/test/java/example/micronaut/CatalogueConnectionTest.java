@@ -0,0 +1,68 @@
+package example.micronaut;
+
+import example.micronaut.services.CatalogueFormat;
+import example.micronaut.services.CatalogueService;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "catalogue.max-connections", value = "1")
+public class CatalogueConnectionTest {
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Inject
+    CatalogueService catalogueService;
+
+    @Test
+    public void testExportsAndImportsBeyondTheConnectionLimitAreRejected() throws InterruptedException {
+        // an export whose client reads nothing keeps its connection
+        BaseSubscriber<byte[]> stalled = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+        };
+        catalogueService.export(CatalogueFormat.CSV).subscribe(stalled);
+        await(() -> !catalogueService.hasFreeConnection());
+
+        HttpClientResponseException thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.GET("/books/export")));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatus());
+        thrown = assertThrows(HttpClientResponseException.class, () ->
+                httpClient.toBlocking().exchange(HttpRequest.POST("/books/import", "book_id,book_name,genre_id,genre_name\n")
+                        .contentType(CatalogueFormat.TEXT_CSV)));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, thrown.getStatus());
+
+        stalled.dispose();
+        await(catalogueService::hasFreeConnection);
+
+        HttpResponse<String> response = httpClient.toBlocking().exchange(HttpRequest.GET("/books/export"), String.class);
+        assertEquals(HttpStatus.OK, response.getStatus());
+        await(catalogueService::hasFreeConnection);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -1,12 +1,15 @@
 package example.micronaut;
 
+import example.micronaut.codecs.BinaryMediaTypes;
 import example.micronaut.commands.GenreUpdateCommand;
 import example.micronaut.domain.Genre;
+import example.micronaut.responses.CacheStats;
 import io.micronaut.core.type.Argument;
 import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.client.HttpClient;
 import io.micronaut.http.client.annotation.Client;
 import io.micronaut.http.client.exceptions.HttpClientResponseException;
@@ -73,6 +76,9 @@ public class GenreControllerTest {
         genre = httpClient.toBlocking().retrieve(request, Genre.class);
         assertEquals("Micro-services", genre.getName());
 
+        CacheStats cacheStats = httpClient.toBlocking().retrieve(HttpRequest.GET("/genres/cache"), CacheStats.class);
+        assertTrue(cacheStats.getHits() > 0, "updated genre should be served from the cache");
+
         request = HttpRequest.GET("/genres/list");
         List<Genre> genres = httpClient.toBlocking().retrieve(request, Argument.of(List.class, Genre.class));
 
@@ -113,6 +119,45 @@ public class GenreControllerTest {
         }
     }
 
+    @Test
+    public void testConditionalGet() {
+        UUID id = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Caching"))));
+
+        HttpResponse<Genre> response = httpClient.toBlocking().exchange(HttpRequest.GET("/genres/" + id), Genre.class);
+        String etag = response.header(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        response = httpClient.toBlocking().exchange(HttpRequest.GET("/genres/" + id).header(HttpHeaders.IF_NONE_MATCH, etag), Genre.class);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+        assertEquals(etag, response.header(HttpHeaders.ETAG));
+
+        httpClient.toBlocking().exchange(HttpRequest.PUT("/genres", new GenreUpdateCommand(id, "Caching 2")));
+
+        response = httpClient.toBlocking().exchange(HttpRequest.GET("/genres/" + id).header(HttpHeaders.IF_NONE_MATCH, etag), Genre.class);
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertNotEquals(etag, response.header(HttpHeaders.ETAG));
+        assertEquals("Caching 2", response.body().getName());
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + id));
+    }
+
+    @Test
+    public void testBinaryEncodings() {
+        UUID id = entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", "Binary"))));
+
+        HttpResponse<?> response = httpClient.toBlocking().exchange(HttpRequest.PUT("/genres", new GenreUpdateCommand(id, "Binary 2"))
+                .contentType(BinaryMediaTypes.APPLICATION_CBOR_TYPE));
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        for (MediaType mediaType : List.of(BinaryMediaTypes.APPLICATION_CBOR_TYPE, BinaryMediaTypes.APPLICATION_SMILE_TYPE)) {
+            HttpResponse<Genre> genre = httpClient.toBlocking().exchange(HttpRequest.GET("/genres/" + id).accept(mediaType), Genre.class);
+            assertEquals(mediaType, genre.getContentType().orElse(null));
+            assertEquals("Binary 2", genre.body().getName());
+        }
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/genres/" + id));
+    }
+
     protected UUID entityId(HttpResponse<?> response) {
         String path = "/genres/";
         String value = response.header(HttpHeaders.LOCATION);
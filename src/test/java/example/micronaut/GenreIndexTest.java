@@ -0,0 +1,85 @@
+package example.micronaut;
+
+import example.micronaut.services.GenreIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GenreIndexTest {
+
+    private static final UUID GENRE = UUID.randomUUID();
+
+    private final GenreIndex index = new GenreIndex();
+
+    // books added after the build get the next ordinals, whatever their ids
+    @Test
+    public void testPagesAreOrderedByIdAcrossBuildAndLaterWrites() {
+        List<UUID> built = ids(20);
+        GenreIndex.Snapshot snapshot = index.startBuild();
+        built.forEach(snapshot::addBook);
+        built.forEach(id -> snapshot.addLink(GENRE, id));
+        index.finishBuild(snapshot, 0);
+
+        List<UUID> added = ids(10);
+        added.forEach(id -> index.put(id, Set.of(GENRE)));
+
+        List<UUID> all = new ArrayList<>(built);
+        all.addAll(added);
+        all.sort(Comparator.comparing(UUID::toString));
+
+        List<UUID> paged = new ArrayList<>();
+        UUID after = null;
+        List<UUID> page;
+        while (!(page = index.filter(Set.of(GENRE), Set.of(), Set.of(), after, 7)).isEmpty()) {
+            paged.addAll(page);
+            after = page.get(page.size() - 1);
+        }
+        assertEquals(all, paged);
+    }
+
+    // a cursor this node never indexed, e.g. a book created on another node, continues at its place in id order
+    @Test
+    public void testUnknownCursorContinuesAtItsPosition() {
+        List<UUID> built = ids(10);
+        GenreIndex.Snapshot snapshot = index.startBuild();
+        built.forEach(snapshot::addBook);
+        built.forEach(id -> snapshot.addLink(GENRE, id));
+        index.finishBuild(snapshot, 0);
+
+        UUID unknown = UUID.randomUUID();
+        List<UUID> expected = built.stream()
+                .filter(id -> id.toString().compareTo(unknown.toString()) > 0)
+                .collect(Collectors.toList());
+        assertEquals(expected, index.filter(Set.of(GENRE), Set.of(), Set.of(), unknown, 100));
+    }
+
+    @Test
+    public void testDeletedCursorContinuesAfterIt() {
+        List<UUID> built = ids(10);
+        GenreIndex.Snapshot snapshot = index.startBuild();
+        built.forEach(snapshot::addBook);
+        built.forEach(id -> snapshot.addLink(GENRE, id));
+        index.finishBuild(snapshot, 0);
+
+        index.removeBooks(Set.of(built.get(4)));
+
+        assertEquals(built.subList(5, 10), index.filter(Set.of(GENRE), Set.of(), Set.of(), built.get(4), 100));
+    }
+
+    // the text form of a uuid sorts like postgres' bytewise uuid order
+    private static List<UUID> ids(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        ids.sort(Comparator.comparing(UUID::toString));
+        return ids;
+    }
+}
@@ -0,0 +1,104 @@
+package example.micronaut;
+
+import example.micronaut.filters.AdmissionConfiguration;
+import example.micronaut.filters.GradientLimiter;
+import example.micronaut.filters.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GradientLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofMillis(10).toNanos();
+
+    private final AdmissionConfiguration configuration = new AdmissionConfiguration();
+
+    @Test
+    public void testPrioritiesFillTheirShareOfTheLimit() {
+        GradientLimiter limiter = new GradientLimiter(configuration);
+
+        assertEquals(5, acquireAll(limiter, Priority.BULK));
+        assertEquals(10, acquireAll(limiter, Priority.WRITE));
+        assertEquals(5, acquireAll(limiter, Priority.READ));
+        assertEquals(20, limiter.getInflight());
+
+        assertEquals(1, limiter.getRejected(Priority.BULK));
+        assertEquals(1, limiter.getRejected(Priority.WRITE));
+        assertEquals(1, limiter.getRejected(Priority.READ));
+        assertEquals(5, limiter.getAdmitted(Priority.BULK));
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyRises() {
+        GradientLimiter limiter = learnLatency(new GradientLimiter(configuration));
+
+        acquireAll(limiter, Priority.READ);
+        limiter.release(SLOW, 0);
+
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitShrinksWhilePoolHasWaiters() {
+        GradientLimiter limiter = learnLatency(new GradientLimiter(configuration));
+
+        // shrinks by the queue depth even though one request is nowhere near the limit
+        assertTrue(limiter.tryAcquire(Priority.READ));
+        limiter.release(FAST, 5);
+
+        assertEquals(19, limiter.getLimit());
+    }
+
+    @Test
+    public void testLimitGrowsOnlyWhileInUse() {
+        GradientLimiter limiter = learnLatency(new GradientLimiter(configuration));
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.tryAcquire(Priority.READ));
+            limiter.release(FAST, 0);
+        }
+        assertEquals(20, limiter.getLimit());
+
+        saturate(limiter, FAST, 0, 10);
+        assertTrue(limiter.getLimit() > 20);
+    }
+
+    @Test
+    public void testLimitStaysWithinBounds() {
+        configuration.setMaxLimit(30);
+        GradientLimiter limiter = new GradientLimiter(configuration);
+
+        saturate(limiter, FAST, 0, 100);
+        assertEquals(30, limiter.getLimit());
+
+        saturate(limiter, FAST, 1000, 100);
+        assertEquals(configuration.getMinLimit(), limiter.getLimit());
+    }
+
+    // one sample while nearly idle sets the long term latency without moving the limit
+    private static GradientLimiter learnLatency(GradientLimiter limiter) {
+        assertTrue(limiter.tryAcquire(Priority.READ));
+        limiter.release(FAST, 0);
+        assertEquals(20, limiter.getLimit());
+        return limiter;
+    }
+
+    // completes requests one at a time while the limit is full
+    private static void saturate(GradientLimiter limiter, long rttNanos, int poolQueue, int samples) {
+        for (int i = 0; i < samples; i++) {
+            acquireAll(limiter, Priority.READ);
+            limiter.release(rttNanos, poolQueue);
+        }
+    }
+
+    private static int acquireAll(GradientLimiter limiter, Priority priority) {
+        int acquired = 0;
+        while (limiter.tryAcquire(priority)) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
@@ -0,0 +1,125 @@
+package example.micronaut;
+
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.domain.Book;
+import example.micronaut.responses.CacheStats;
+import example.micronaut.services.GenreIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MutableHttpRequest;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.cookie.Cookie;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The replica is the test database itself, so which session factory served a read is told from the repository
+ * metrics.
+ */
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "replica.enabled", value = "true")
+@Property(name = "books.cache.enabled", value = "true")
+@Property(name = "jpa.replica.entity-scan.packages", value = "example.micronaut.domain")
+@Property(name = "jpa.replica.reactive", value = "true")
+@Property(name = "jpa.replica.properties.hibernate.connection.url", value = "${jpa.default.properties.hibernate.connection.url}")
+@Property(name = "jpa.replica.properties.hibernate.connection.username", value = "${jpa.default.properties.hibernate.connection.username}")
+@Property(name = "jpa.replica.properties.hibernate.connection.password", value = "${jpa.default.properties.hibernate.connection.password}")
+public class ReadRoutingTest {
+
+    private static final String COOKIE = "primary-reads-until";
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    GenreIndex genreIndex;
+
+    @BeforeAll
+    void awaitIndex() {
+        // the index is built from the primary on startup, its scans must not be counted against a request
+        genreIndex.whenReady().block(Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void testReadsGoToThePrimaryAfterAWrite() {
+        HttpResponse<?> created = httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Routed", Set.of())));
+        Cookie cookie = created.getCookie(COOKIE).orElse(null);
+        assertNotNull(cookie, "a write should open the read-your-writes window");
+
+        assertListedFrom("BookReplicaRepository", HttpRequest.GET("/books/list?limit=1"));
+        assertListedFrom("BookRepository", HttpRequest.GET("/books/list?limit=1").cookie(cookie));
+        assertListedFrom("BookReplicaRepository", HttpRequest.GET("/books/list?limit=1").cookie(Cookie.of(COOKIE, "0")));
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + entityId(created)));
+    }
+
+    @Test
+    public void testOnlyPrimaryReadsAreCached() {
+        HttpResponse<?> created = httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand("Routed uncached", Set.of())));
+        UUID bookId = entityId(created);
+        Cookie cookie = created.getCookie(COOKIE).orElseThrow();
+
+        // read from the replica, so the second read misses again
+        CacheStats before = stats();
+        show(HttpRequest.GET("/books/" + bookId));
+        show(HttpRequest.GET("/books/" + bookId));
+        CacheStats after = stats();
+        assertEquals(before.getHits(), after.getHits());
+        assertEquals(before.getMisses() + 2, after.getMisses());
+
+        // reading its own write the client skips the cache altogether
+        show(HttpRequest.GET("/books/" + bookId).cookie(cookie));
+        CacheStats bypassed = stats();
+        assertEquals(after.getHits(), bypassed.getHits());
+        assertEquals(after.getMisses(), bypassed.getMisses());
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+    }
+
+    private void assertListedFrom(String component, MutableHttpRequest<?> request) {
+        long replica = listed("BookReplicaRepository");
+        long primary = listed("BookRepository");
+        httpClient.toBlocking().retrieve(request, Argument.listOf(Book.class));
+        assertEquals(component.equals("BookReplicaRepository") ? replica + 1 : replica, listed("BookReplicaRepository"));
+        assertEquals(component.equals("BookRepository") ? primary + 1 : primary, listed("BookRepository"));
+    }
+
+    private long listed(String component) {
+        Timer timer = meterRegistry.find("db.repository").tags("component", component, "method", "findIdsAfter").timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private void show(MutableHttpRequest<?> request) {
+        assertEquals("Routed uncached", httpClient.toBlocking().retrieve(request, Book.class).getName());
+    }
+
+    private CacheStats stats() {
+        return httpClient.toBlocking().retrieve(HttpRequest.GET("/books/cache"), CacheStats.class);
+    }
+
+    private UUID entityId(HttpResponse<?> response) {
+        String value = response.header(HttpHeaders.LOCATION);
+        assertNotNull(value);
+        return UUID.fromString(value.substring(value.indexOf("/books/") + "/books/".length()));
+    }
+}
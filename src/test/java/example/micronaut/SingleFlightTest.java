@@ -0,0 +1,104 @@
+package example.micronaut;
+
+import example.micronaut.services.SingleFlight;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String, String> flight = new SingleFlight<>("test");
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void testConcurrentLoadsOfOneKeyShareOneLoad() throws Exception {
+        Sinks.One<String> result = Sinks.one();
+
+        CompletableFuture<String> first = flight.load("a", loader(result)).toFuture();
+        CompletableFuture<String> second = flight.load("a", loader(result)).toFuture();
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.inFlight());
+        assertFalse(first.isDone());
+
+        result.tryEmitValue("value");
+
+        assertEquals("value", first.get());
+        assertEquals("value", second.get());
+        assertEquals(1, flight.getLoads());
+        assertEquals(1, flight.getCoalesced());
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    public void testDifferentKeysLoadSeparately() {
+        flight.load("a", loader(Sinks.one())).subscribe();
+        flight.load("b", loader(Sinks.one())).subscribe();
+
+        assertEquals(2, loads.get());
+        assertEquals(2, flight.inFlight());
+    }
+
+    @Test
+    public void testErrorIsNotKeptPastTheFlight() throws Exception {
+        Sinks.One<String> failing = Sinks.one();
+        CompletableFuture<String> first = flight.load("a", loader(failing)).toFuture();
+        CompletableFuture<String> second = flight.load("a", loader(failing)).toFuture();
+
+        failing.tryEmitError(new IllegalStateException("boom"));
+
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, first::get).getCause());
+        assertInstanceOf(IllegalStateException.class, assertThrows(ExecutionException.class, second::get).getCause());
+        assertEquals(0, flight.inFlight());
+
+        assertEquals("value", flight.load("a", key -> Mono.just("value")).block());
+        assertEquals(1, loads.get());
+        assertEquals(2, flight.getLoads());
+    }
+
+    @Test
+    public void testCancelledCallerDoesNotCancelTheOthers() throws Exception {
+        AtomicInteger cancels = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+        Function<String, Mono<String>> loader = key -> result.asMono().doOnCancel(cancels::incrementAndGet);
+
+        Disposable first = flight.load("a", loader).subscribe();
+        CompletableFuture<String> second = flight.load("a", loader).toFuture();
+        first.dispose();
+
+        assertEquals(0, cancels.get());
+        assertEquals(1, flight.inFlight());
+        result.tryEmitValue("value");
+        assertEquals("value", second.get());
+    }
+
+    @Test
+    public void testLoadAfterCompletionStartsANewFlight() {
+        assertEquals("first", flight.load("a", key -> {
+            loads.incrementAndGet();
+            return Mono.just("first");
+        }).block());
+        assertEquals("second", flight.load("a", key -> {
+            loads.incrementAndGet();
+            return Mono.just("second");
+        }).block());
+
+        assertEquals(2, loads.get());
+        assertEquals(2, flight.getLoads());
+        assertEquals(0, flight.getCoalesced());
+    }
+
+    private Function<String, Mono<String>> loader(Sinks.One<String> result) {
+        return key -> {
+            loads.incrementAndGet();
+            return result.asMono();
+        };
+    }
+}
@@ -0,0 +1,140 @@
+package example.micronaut;
+
+import example.micronaut.commands.BookCreateCommand;
+import example.micronaut.commands.BookDeleteCommand;
+import example.micronaut.commands.BookRenameCommand;
+import example.micronaut.commands.GenreDeleteCommand;
+import example.micronaut.controllers.BookCursor;
+import example.micronaut.domain.Book;
+import example.micronaut.services.GenreIndex;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Guards the number of statements each endpoint issues, so a mapping or repository change that turns a read into
+ * N+1 queries fails here. The counts per endpoint are written to build/reports/sql-statements.txt.
+ */
+@MicronautTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "books.cache.enabled", value = "true")
+public class SqlStatementCountTest {
+
+    @Inject
+    @Client("/")
+    HttpClient httpClient;
+
+    @Inject
+    GenreIndex genreIndex;
+
+    SqlStatementRecorder recorder;
+
+    @BeforeAll
+    void attach() {
+        // the index is built in the background on startup, its scans must not be counted against a request
+        genreIndex.whenReady().block(Duration.ofSeconds(30));
+        recorder = SqlStatementRecorder.attach();
+    }
+
+    @AfterAll
+    void detach() {
+        recorder.writeReport(Path.of("build", "reports", "sql-statements.txt"));
+        recorder.detach();
+    }
+
+    @Test
+    public void testListIssuesTheSameStatementsRegardlessOfRowCount() {
+        UUID genreId = genre("Counted genre");
+        List<UUID> genreIds = new ArrayList<>(List.of(genreId));
+        List<UUID> bookIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            UUID otherGenreId = genre("Counted genre " + i);
+            genreIds.add(otherGenreId);
+            bookIds.add(book("Counted " + i, Set.of(genreId, otherGenreId)));
+        }
+
+        // the page's ids, then the books with their genres, paged from just before the created books
+        List<UUID> sorted = bookIds.stream().sorted(Comparator.comparing(UUID::toString)).collect(Collectors.toList());
+        String after = BookCursor.encode(before(sorted.get(0)));
+        assertPage(sorted.subList(0, 1), recorder.assertStatements(2, "GET /books/list?limit=1", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/books/list?limit=1&after=" + after), Argument.listOf(Book.class))));
+        assertPage(sorted.subList(0, 5), recorder.assertStatements(2, "GET /books/list?limit=5", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/books/list?limit=5&after=" + after), Argument.listOf(Book.class))));
+        assertEquals(6, recorder.assertStatements(2, "GET /genres/{id}/books", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/genres/" + genreId + "/books"), Argument.listOf(Book.class))).size());
+
+        String ids = bookIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+        assertEquals(6, recorder.assertStatements(1, "GET /books?ids=", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/books?ids=" + ids), Argument.listOf(Book.class))).size());
+        assertEquals(6, recorder.assertStatements(1, "GET /books/filter", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/books/filter?all=" + genreId), Argument.listOf(Book.class))).size());
+
+        httpClient.toBlocking().exchange(HttpRequest.POST("/books/delete", new BookDeleteCommand(Set.copyOf(bookIds), null)));
+        httpClient.toBlocking().exchange(HttpRequest.POST("/genres/delete", new GenreDeleteCommand(Set.copyOf(genreIds))));
+    }
+
+    @Test
+    public void testSingleBookReadsAndRenames() {
+        UUID bookId = book("Counted single", Set.of(genre("Counted single genre")));
+
+        Book book = recorder.assertStatements(1, "GET /books/{id}", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class));
+        // served from the book cache
+        recorder.assertStatements(0, "GET /books/{id} cached", () ->
+                httpClient.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class));
+        recorder.assertStatements(1, "PUT /books/{id}/name", () ->
+                httpClient.toBlocking().exchange(HttpRequest.PUT("/books/" + bookId + "/name",
+                        new BookRenameCommand("Counted single renamed", book.getVersion()))));
+
+        httpClient.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+    }
+
+    private static void assertPage(List<UUID> expected, List<Book> page) {
+        assertEquals(expected, page.stream().map(Book::getId).collect(Collectors.toList()));
+        for (Book book : page) {
+            assertEquals(2, book.getGenres().size());
+        }
+    }
+
+    // the id just below the given one in postgres' bytewise uuid order, a cursor that starts a page at that id
+    private static UUID before(UUID id) {
+        long lsb = id.getLeastSignificantBits();
+        return new UUID(lsb == 0 ? id.getMostSignificantBits() - 1 : id.getMostSignificantBits(), lsb - 1);
+    }
+
+    private UUID genre(String name) {
+        return entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/genres", Collections.singletonMap("name", name))), "/genres/");
+    }
+
+    private UUID book(String name, Set<UUID> genres) {
+        return entityId(httpClient.toBlocking().exchange(HttpRequest.POST("/books", new BookCreateCommand(name, genres))), "/books/");
+    }
+
+    private UUID entityId(HttpResponse<?> response, String path) {
+        String value = response.header(HttpHeaders.LOCATION);
+        assertNotNull(value);
+        return UUID.fromString(value.substring(value.indexOf(path) + path.length()));
+    }
+}
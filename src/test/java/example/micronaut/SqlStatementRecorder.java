@@ -0,0 +1,97 @@
+package example.micronaut;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Captures every statement Hibernate Reactive sends, from the org.hibernate.SQL logger it reports them to, and
+ * attributes them to the HTTP request made while recording. Requests are made one at a time with the blocking
+ * client so everything logged in between belongs to that request.
+ */
+class SqlStatementRecorder extends AppenderBase<ILoggingEvent> {
+
+    // appended to from event loop threads while the test thread waits for the response
+    private final List<String> statements = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, List<String>> report = new TreeMap<>();
+    private Logger logger;
+    private Level previousLevel;
+
+    static SqlStatementRecorder attach() {
+        SqlStatementRecorder recorder = new SqlStatementRecorder();
+        recorder.logger = (Logger) LoggerFactory.getLogger("org.hibernate.SQL");
+        recorder.previousLevel = recorder.logger.getLevel();
+        recorder.logger.setLevel(Level.DEBUG);
+        recorder.start();
+        recorder.logger.addAppender(recorder);
+        return recorder;
+    }
+
+    void detach() {
+        logger.detachAppender(this);
+        logger.setLevel(previousLevel);
+        stop();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        statements.add(event.getFormattedMessage());
+    }
+
+    /**
+     * Runs the request and keeps the statements it issued in the report under the endpoint.
+     */
+    <T> T record(String endpoint, Supplier<T> request) {
+        statements.clear();
+        T result = request.get();
+        List<String> issued;
+        synchronized (statements) {
+            issued = List.copyOf(statements);
+        }
+        report.put(endpoint, issued);
+        return result;
+    }
+
+    /**
+     * Runs the request and fails unless it issued exactly the expected number of statements.
+     */
+    <T> T assertStatements(int expected, String endpoint, Supplier<T> request) {
+        T result = record(endpoint, request);
+        List<String> issued = report.get(endpoint);
+        assertEquals(expected, issued.size(), () -> endpoint + " issued " + issued.size() + " statements, expected "
+                + expected + ":\n" + String.join("\n", issued));
+        return result;
+    }
+
+    /**
+     * Writes the statement count and the statements of each recorded endpoint.
+     */
+    void writeReport(Path file) {
+        String lines = report.entrySet().stream()
+                .map(entry -> entry.getKey() + ": " + entry.getValue().size() + "\n"
+                        + entry.getValue().stream().map(sql -> "    " + sql).collect(Collectors.joining("\n")))
+                .collect(Collectors.joining("\n"));
+        try {
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, lines + "\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}